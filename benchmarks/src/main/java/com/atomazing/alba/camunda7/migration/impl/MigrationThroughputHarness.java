@@ -0,0 +1,293 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import com.atomazing.alba.camunda7.migration.api.MapEqualActivitiesMigration;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * End-to-end migration run on an in-memory H2 database. For every combination of parameters boots an engine through
+ * {@link MigratingSpringProcessEngineConfiguration}, seeds running processes spread over all but the last version tag of every key,
+ * then migrates them all to the last tag and reports duration, number of JDBC statements and peak heap usage of the migration alone.
+ * <p>
+ * Parameters are {@code name=value[,value...]} arguments: {@code instances} (total processes, default {@code 1000}),
+ * {@code chainLength} (migration steps per key, default {@code 3}), {@code keys} (process definition keys, default {@code 1}) and
+ * {@code strategies} ({@code per-instance}, {@code batched}, {@code parallel}, {@code page-transactions}, all by default).
+ */
+public class MigrationThroughputHarness {
+    private static final Map<String, Consumer<MigrationAutoStarter>> STRATEGIES = new LinkedHashMap<>();
+
+    static {
+        STRATEGIES.put("per-instance", starter -> starter.setBatchSize(1));
+        STRATEGIES.put("batched", starter -> starter.setBatchSize(500));
+        STRATEGIES.put("parallel", starter -> {
+            starter.setBatchSize(500);
+            starter.setParallelism(4);
+        });
+        STRATEGIES.put("page-transactions", starter -> {
+            starter.setBatchSize(500);
+            starter.setTransactionPerPage(true);
+        });
+    }
+
+    private final AtomicLong statements = new AtomicLong();
+    private final File resourceDirectory;
+
+    public MigrationThroughputHarness() throws IOException {
+        this.resourceDirectory = Files.createTempDirectory("migration-harness").toFile();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, List<String>> parameters = parseParameters(args);
+        MigrationThroughputHarness harness = new MigrationThroughputHarness();
+        System.out.printf("%-18s %6s %6s %10s %10s %12s %12s %14s%n",
+            "strategy", "keys", "chain", "instances", "millis", "statements", "peak-heap-mb", "instances/sec");
+        for (String strategy : parameters.getOrDefault("strategies", new ArrayList<>(STRATEGIES.keySet()))) {
+            for (String keys : parameters.getOrDefault("keys", Collections.singletonList("1"))) {
+                for (String chainLength : parameters.getOrDefault("chainLength", Collections.singletonList("3"))) {
+                    for (String instances : parameters.getOrDefault("instances", Collections.singletonList("1000"))) {
+                        harness.run(strategy, Integer.parseInt(keys), Integer.parseInt(chainLength), Integer.parseInt(instances));
+                    }
+                }
+            }
+        }
+    }
+
+    public void run(String strategy, int keyCount, int chainLength, int instanceCount) {
+        Consumer<MigrationAutoStarter> strategyConfiguration = STRATEGIES.get(strategy);
+        if (strategyConfiguration == null) {
+            throw new IllegalArgumentException("Unknown strategy " + strategy + ", expected one of " + STRATEGIES.keySet());
+        }
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < keyCount; i++) {
+            keys.add("process" + i);
+        }
+        MigrationAutoStarter seedStarter = new MigrationAutoStarter(Collections.emptyList());
+        MigratingSpringProcessEngineConfiguration configuration = createConfiguration(seedStarter, createResources(keys, chainLength));
+        ProcessEngine processEngine = configuration.buildProcessEngine();
+        try {
+            seed(processEngine, keys, chainLength, instanceCount);
+
+            MigrationAutoStarter starter = new MigrationAutoStarter(createMigrations(keys, chainLength));
+            strategyConfiguration.accept(starter);
+            System.gc();
+            resetPeakHeapUsage();
+            statements.set(0);
+            long start = System.nanoTime();
+            if (starter.isTransactionPerPage()) {
+                starter.autoMigrate(processEngine, new ProcessDefinitionCache(processEngine));
+            } else {
+                configuration.getCommandExecutorTxRequired().execute(
+                    new AutoMigrateCmd(starter, processEngine, new ProcessDefinitionCache(processEngine)));
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertMigrated(processEngine, keys, chainLength, instanceCount);
+            System.out.printf("%-18s %6d %6d %10d %10d %12d %12d %14d%n", strategy, keyCount, chainLength, instanceCount, millis,
+                statements.get(), getPeakHeapUsage() / (1024 * 1024), instanceCount * 1000L / Math.max(millis, 1));
+        } finally {
+            processEngine.close();
+        }
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private static Map<String, List<String>> parseParameters(String[] args) {
+        Map<String, List<String>> parameters = new HashMap<>();
+        for (String arg : args) {
+            String[] parameter = arg.split("=", 2);
+            if (parameter.length != 2) {
+                throw new IllegalArgumentException("Expected name=value[,value...], got " + arg);
+            }
+            parameters.put(parameter[0], Arrays.asList(parameter[1].split(",")));
+        }
+        return parameters;
+    }
+
+    private static String getVersionTag(int index) {
+        return "1." + index;
+    }
+
+    private Resource[] createResources(List<String> keys, int chainLength) {
+        List<Resource> resources = new ArrayList<>();
+        for (String key : keys) {
+            for (int i = 0; i <= chainLength; i++) {
+                String versionTag = getVersionTag(i);
+                File file = new File(resourceDirectory, key + "-process-" + versionTag + ".bpmn");
+                if (!file.exists()) {
+                    Bpmn.writeModelToFile(file, Bpmn.createExecutableProcess(key)
+                        .camundaVersionTag(versionTag)
+                        .startEvent("start")
+                        .userTask("task")
+                        .endEvent("end")
+                        .done());
+                }
+                resources.add(new FileSystemResource(file));
+            }
+        }
+        return resources.toArray(new Resource[0]);
+    }
+
+    private MigratingSpringProcessEngineConfiguration createConfiguration(MigrationAutoStarter starter, Resource[] resources) {
+        String name = "harness-" + UUID.randomUUID();
+        DataSource dataSource = countStatements(new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+
+        MigratingSpringProcessEngineConfiguration configuration = new MigratingSpringProcessEngineConfiguration(starter, true);
+        configuration.setProcessEngineName(name);
+        configuration.setDataSource(dataSource);
+        configuration.setTransactionManager(new DataSourceTransactionManager(dataSource));
+        configuration.setApplicationContext(applicationContext);
+        configuration.setDatabaseSchemaUpdate("true");
+        configuration.setHistory("none");
+        configuration.setJobExecutorActivate(false);
+        configuration.setDeploymentName("harness");
+        configuration.setDeploymentResources(resources);
+        return configuration;
+    }
+
+    private void seed(ProcessEngine processEngine, List<String> keys, int chainLength, int instanceCount) {
+        RuntimeService runtimeService = processEngine.getRuntimeService();
+        for (int i = 0; i < instanceCount; i++) {
+            String key = keys.get(i % keys.size());
+            String versionTag = getVersionTag(i / keys.size() % chainLength);
+            runtimeService.startProcessInstanceById(getDefinition(processEngine, key, versionTag).getId());
+        }
+    }
+
+    private List<CamundaMigration> createMigrations(List<String> keys, int chainLength) {
+        List<CamundaMigration> migrations = new ArrayList<>();
+        for (String key : keys) {
+            for (int i = 0; i < chainLength; i++) {
+                migrations.add(new MapEqualActivities(key, getVersionTag(i), getVersionTag(i + 1)));
+            }
+        }
+        return migrations;
+    }
+
+    private void assertMigrated(ProcessEngine processEngine, List<String> keys, int chainLength, int instanceCount) {
+        long migrated = keys.stream()
+            .map(key -> getDefinition(processEngine, key, getVersionTag(chainLength)))
+            .mapToLong(definition -> processEngine.getRuntimeService().createProcessInstanceQuery()
+                .processDefinitionId(definition.getId())
+                .count())
+            .sum();
+        if (migrated != instanceCount) {
+            throw new IllegalStateException("Migrated " + migrated + " of " + instanceCount + " processes");
+        }
+    }
+
+    private ProcessDefinition getDefinition(ProcessEngine processEngine, String key, String versionTag) {
+        return processEngine.getRepositoryService().createProcessDefinitionQuery()
+            .processDefinitionKey(key)
+            .versionTag(versionTag)
+            .singleResult();
+    }
+
+    private DataSource countStatements(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (method, result) -> result instanceof Connection
+            ? proxy(Connection.class, (Connection) result, (connectionMethod, statement) -> {
+                if (connectionMethod.getName().startsWith("prepare") || connectionMethod.getName().equals("createStatement")) {
+                    statements.incrementAndGet();
+                }
+                return statement;
+            })
+            : result);
+    }
+
+    private interface ResultMapper {
+        Object map(Method method, Object result);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, ResultMapper mapper) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            try {
+                return mapper.map(method, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }));
+    }
+
+    private static void resetPeakHeapUsage() {
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long getPeakHeapUsage() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+    }
+
+    /**
+     * Library migration used by applications, runs synchronously as the harness migrates on start-up.
+     */
+    private static class MapEqualActivities extends MapEqualActivitiesMigration {
+        private final String key;
+        private final String source;
+        private final String target;
+
+        MapEqualActivities(String key, String source, String target) {
+            this.key = key;
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public String source() {
+            return source;
+        }
+
+        @Override
+        public String target() {
+            return target;
+        }
+    }
+}
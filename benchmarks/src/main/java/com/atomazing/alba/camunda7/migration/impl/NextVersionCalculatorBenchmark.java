@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version calculation of a new definition among existing definitions of its key, done for every deployed definition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NextVersionCalculatorBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int definitionCount;
+
+    private NextVersionCalculator calculator;
+    private List<ProcessDefinition> definitions;
+    private NavigableSet<ProcessDefinition> index;
+    private ProcessDefinition newDefinition;
+
+    @Setup
+    public void setUp() {
+        calculator = new NextVersionCalculator();
+        definitions = new ArrayList<>();
+        for (int i = 0; i < definitionCount; i++) {
+            definitions.add(createDefinition("1." + i / 100 + "." + i % 100, (i + 1) * 1000));
+        }
+        index = new TreeSet<>(NextVersionCalculator.VERSION_ORDER);
+        index.addAll(definitions);
+        int middle = definitionCount / 2;
+        newDefinition = createDefinition("1." + middle / 100 + "." + middle % 100, 0);
+    }
+
+    @Benchmark
+    public int getNextVersion() {
+        return calculator.getNextVersion(newDefinition, definitions);
+    }
+
+    /**
+     * The same with an index kept between deployments of the key.
+     */
+    @Benchmark
+    public int getNextVersionFromIndex() {
+        return calculator.getNextVersion(newDefinition, index);
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private static ProcessDefinition createDefinition(String versionTag, int version) {
+        ProcessDefinitionEntity definition = new ProcessDefinitionEntity();
+        definition.setKey("process");
+        definition.setVersionTag(versionTag);
+        definition.setVersion(version);
+        return definition;
+    }
+}
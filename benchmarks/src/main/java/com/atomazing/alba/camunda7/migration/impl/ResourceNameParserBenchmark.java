@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version tag parsing from deployed resource names, done for every resource on start-up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceNameParserBenchmark {
+    @Param({
+        "some-process.bpmn",
+        "some-process-1.2.3.bpmn",
+        "bpmn/000000/some-process-1.2.3.4-SNAPSHOT.bpmn20.xml",
+    })
+    public String resourceName;
+
+    private ResourceNameParser parser;
+
+    @Setup
+    public void setUp() {
+        parser = new ResourceNameParser();
+    }
+
+    @Benchmark
+    public String parseVersion() {
+        return parser.parseVersion(resourceName);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and comparison of version tags, used to order deployments and definitions on every start-up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionComparisonBenchmark {
+    @Param({"1.2.3", "01.01.01", "1.2.3-SNAPSHOT"})
+    public String tag;
+
+    private String otherTag;
+    private ComparableVersion version;
+    private ComparableVersion otherVersion;
+    private DefaultVersionTagComparator comparator;
+
+    @Setup
+    public void setUp() {
+        otherTag = tag.replace('3', '4').replace("01.01.01", "01.01.02");
+        version = new ComparableVersion(tag);
+        otherVersion = new ComparableVersion(otherTag);
+        comparator = new DefaultVersionTagComparator();
+    }
+
+    @Benchmark
+    public ComparableVersion parseComparableVersion() {
+        return new ComparableVersion(tag);
+    }
+
+    @Benchmark
+    public int compareParsedComparableVersions() {
+        return version.compareTo(otherVersion);
+    }
+
+    @Benchmark
+    public int compareComparableVersions() {
+        return new ComparableVersion(tag).compareTo(new ComparableVersion(otherTag));
+    }
+
+    @Benchmark
+    public int compareWithDefaultVersionTagComparator() {
+        return comparator.compare(tag, otherTag);
+    }
+}
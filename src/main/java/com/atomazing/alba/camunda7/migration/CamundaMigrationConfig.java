@@ -18,15 +18,24 @@ package com.atomazing.alba.camunda7.migration;
 import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
 import com.atomazing.alba.camunda7.migration.impl.MigratingSpringProcessEngineConfiguration;
 import com.atomazing.alba.camunda7.migration.impl.MigrationAutoStarter;
+import com.atomazing.alba.camunda7.migration.impl.MicrometerMigrationMetrics;
+import com.atomazing.alba.camunda7.migration.impl.MigrationHealthIndicator;
+import com.atomazing.alba.camunda7.migration.impl.MigrationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.camunda.bpm.engine.impl.cfg.CompositeProcessEnginePlugin;
 import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.camunda.bpm.engine.impl.cfg.ProcessEnginePlugin;
 import org.camunda.bpm.engine.spring.SpringProcessEngineConfiguration;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.camunda.bpm.spring.boot.starter.util.CamundaSpringBootUtil.initCustomFields;
 
@@ -35,15 +44,82 @@ public class CamundaMigrationConfig {
     @Value("${camunda.bpm.application.deploy-changed-only:true}")
     private boolean deployChangedOnly;
 
+    @Value("${camunda.migration.check-overridden-version-tag:true}")
+    private boolean checkOverriddenVersionTag;
+
+    @Value("${camunda.migration.deployment-tenant-ids:}")
+    private String[] deploymentTenantIds;
+
+    @Value("${camunda.migration.batch-size:1}")
+    private int migrationBatchSize;
+
+    @Value("${camunda.migration.page-size:1000}")
+    private int migrationPageSize;
+
+    @Value("${camunda.migration.parallelism:1}")
+    private int migrationParallelism;
+
+    @Value("${camunda.migration.transaction-per-page:false}")
+    private boolean migrationTransactionPerPage;
+
+    @Value("${camunda.migration.async:false}")
+    private boolean migrationAsync;
+
+    @Value("${camunda.migration.batch-timeout-seconds:3600}")
+    private long migrationBatchTimeoutSeconds;
+
+    @Value("${camunda.migration.skip-unchanged:true}")
+    private boolean migrationSkipUnchanged;
+
+    @Bean
+    public MigrationAutoStarter migrationAutoStarter(List<CamundaMigration> camundaMigrations,
+        ObjectProvider<MigrationMetrics> migrationMetrics) {
+        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(camundaMigrations);
+        migrationAutoStarter.setBatchSize(migrationBatchSize);
+        migrationAutoStarter.setPageSize(migrationPageSize);
+        migrationAutoStarter.setParallelism(migrationParallelism);
+        migrationAutoStarter.setTransactionPerPage(migrationTransactionPerPage);
+        migrationAutoStarter.setAsync(migrationAsync);
+        migrationAutoStarter.setBatchTimeoutSeconds(migrationBatchTimeoutSeconds);
+        migrationAutoStarter.setSkipUnchanged(migrationSkipUnchanged);
+        migrationAutoStarter.setMetrics(migrationMetrics.getIfAvailable(() -> MigrationMetrics.NONE));
+        return migrationAutoStarter;
+    }
+
     @Bean
     public ProcessEngineConfigurationImpl processEngineConfigurationImpl(
         List<ProcessEnginePlugin> processEnginePlugins,
-        List<CamundaMigration> camundaMigrations
+        MigrationAutoStarter migrationAutoStarter
     ) {
-        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(camundaMigrations);
-        SpringProcessEngineConfiguration configuration =
-            initCustomFields(new MigratingSpringProcessEngineConfiguration(migrationAutoStarter, deployChangedOnly));
+        MigratingSpringProcessEngineConfiguration migratingConfiguration =
+            new MigratingSpringProcessEngineConfiguration(migrationAutoStarter, deployChangedOnly, checkOverriddenVersionTag);
+        migratingConfiguration.setDeploymentTenantIds(Arrays.stream(deploymentTenantIds)
+            .map(String::trim)
+            .filter(tenantId -> !tenantId.isEmpty())
+            .collect(Collectors.toList()));
+        SpringProcessEngineConfiguration configuration = initCustomFields(migratingConfiguration);
         configuration.getProcessEnginePlugins().add(new CompositeProcessEnginePlugin(processEnginePlugins));
         return configuration;
     }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+    @ConditionalOnProperty(name = "camunda.migration.health-indicator", havingValue = "true")
+    static class HealthIndicatorConfig {
+        @Bean
+        public MigrationHealthIndicator camundaMigrationHealthIndicator(MigrationAutoStarter migrationAutoStarter) {
+            return new MigrationHealthIndicator(migrationAutoStarter);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(name = "camunda.migration.metrics", havingValue = "true", matchIfMissing = true)
+    static class MetricsConfig {
+        @Bean
+        public MigrationMetrics camundaMigrationMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            return registry == null ? MigrationMetrics.NONE : new MicrometerMigrationMetrics(registry);
+        }
+    }
 }
@@ -23,4 +23,12 @@ public interface CamundaMigration {
     String target();
 
     void migrate(CamundaMigrationContext context);
+
+    /**
+     * Whether {@link #migrate} may submit Camunda batches instead of migrating processes synchronously, see
+     * {@code CamundaMigrationContext.isAsyncAllowed()}.
+     */
+    default boolean async() {
+        return false;
+    }
 }
@@ -18,8 +18,10 @@ package com.atomazing.alba.camunda7.migration.api;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.batch.Batch;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -30,4 +32,25 @@ public class CamundaMigrationContext {
     private final ProcessDefinition sourceDefinition;
     private final ProcessDefinition targetDefinition;
     private final List<String> processIds;
+
+    /**
+     * Whether the migration may submit Camunda batches and register them with {@link #addBatch} instead of migrating processes
+     * synchronously. Only allowed for {@link CamundaMigration#async()} migrations running in background.
+     */
+    private boolean asyncAllowed;
+
+    private final List<Batch> batches = new ArrayList<>();
+
+    public CamundaMigrationContext(ProcessEngine processEngine, ProcessDefinition sourceDefinition, ProcessDefinition targetDefinition,
+        List<String> processIds, boolean asyncAllowed) {
+        this(processEngine, sourceDefinition, targetDefinition, processIds);
+        this.asyncAllowed = asyncAllowed;
+    }
+
+    /**
+     * Registers a batch submitted by the migration. Next migration steps of its processes are applied once the batch is completed.
+     */
+    public void addBatch(Batch batch) {
+        batches.add(batch);
+    }
 }
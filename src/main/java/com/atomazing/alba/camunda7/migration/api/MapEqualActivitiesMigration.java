@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.api;
+
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.migration.MigrationPlan;
+import org.camunda.bpm.engine.migration.MigrationPlanExecutionBuilder;
+
+/**
+ * Migration that maps equal activities of source and target definitions. Runs as a Camunda batch on job executors of all nodes when
+ * allowed by {@code CamundaMigrationContext.isAsyncAllowed()}, synchronously otherwise.
+ * <p>
+ * Like in Camunda, custom execution listeners and input/output mappings of activities are invoked during migration unless
+ * {@link #isSkipCustomListeners} or {@link #isSkipIoMappings} is overridden to skip them.
+ */
+public abstract class MapEqualActivitiesMigration implements CamundaMigration {
+    @Override
+    public void migrate(CamundaMigrationContext context) {
+        RuntimeService runtimeService = context.getProcessEngine().getRuntimeService();
+        MigrationPlanExecutionBuilder migration = runtimeService.newMigration(createMigrationPlan(context))
+            .processInstanceIds(context.getProcessIds());
+        if (isSkipCustomListeners()) {
+            migration.skipCustomListeners();
+        }
+        if (isSkipIoMappings()) {
+            migration.skipIoMappings();
+        }
+        if (context.isAsyncAllowed()) {
+            context.addBatch(migration.executeAsync());
+        } else {
+            migration.execute();
+        }
+    }
+
+    @Override
+    public boolean async() {
+        return true;
+    }
+
+    /**
+     * Whether custom execution listeners are skipped, {@code false} by default.
+     */
+    protected boolean isSkipCustomListeners() {
+        return false;
+    }
+
+    /**
+     * Whether input/output mappings of activities are skipped, {@code false} by default.
+     */
+    protected boolean isSkipIoMappings() {
+        return false;
+    }
+
+    protected MigrationPlan createMigrationPlan(CamundaMigrationContext context) {
+        return context.getProcessEngine().getRuntimeService()
+            .createMigrationPlan(context.getSourceDefinition().getId(), context.getTargetDefinition().getId())
+            .mapEqualActivities()
+            .build();
+    }
+}
@@ -28,11 +28,12 @@ class AutoMigrateCmd implements Command<Void> {
 
     private final MigrationAutoStarter migrationAutoStarter;
     private final ProcessEngine processEngine;
+    private final ProcessDefinitionCache definitionCache;
 
     @Override
     public Void execute(CommandContext commandContext) {
         acquireExclusiveLock(commandContext);
-        migrationAutoStarter.autoMigrate(processEngine);
+        migrationAutoStarter.autoMigrate(processEngine, definitionCache);
         return null;
     }
 
@@ -40,6 +41,7 @@ class AutoMigrateCmd implements Command<Void> {
         if (commandContext.getProcessEngineConfiguration().isDeploymentLockUsed()) {
             commandContext.getPropertyManager().acquireExclusiveLock();
             LOGGER.debug("Acquired exclusive db lock");
+            LockHoldTimer.start(commandContext, migrationAutoStarter.getMetrics(), "migrate");
         }
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups processes by source definition and passes them to {@link CamundaMigration#migrate} in batches of {@code batchSize}, so one
+ * migration plan covers the whole batch instead of a single process.
+ */
+class BatchMigrationStrategy extends SyncMigrationStrategy {
+    private final int batchSize;
+
+    public BatchMigrationStrategy(int batchSize) {
+        Assert.isTrue(batchSize > 0, () -> "Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    protected void migrateProcesses(ProcessDefinition source, List<String> processIds, MigrationChain.Step step, ProcessEngine processEngine) {
+        for (int from = 0; from < processIds.size(); from += batchSize) {
+            List<String> batch = new ArrayList<>(processIds.subList(from, Math.min(from + batchSize, processIds.size())));
+            createProcessMigrator().applyMigration(source, batch, step, processEngine);
+        }
+    }
+}
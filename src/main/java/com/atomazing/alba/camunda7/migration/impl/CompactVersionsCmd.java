@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.engine.repository.ProcessDefinitionQuery;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.instance.CallActivity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Renumbers versions of a key with {@link NextVersionCalculator#getCompactedVersions}, one {@code UPDATE} per
+ * {@value #MAX_DEFINITIONS_PER_UPDATE} definitions. Ids, version tags and the order of definitions don't change. Refuses to run if a
+ * call activity of a latest or running definition calls the key with {@code version} binding, as it would then call another definition.
+ */
+@RequiredArgsConstructor
+class CompactVersionsCmd implements Command<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactVersionsCmd.class);
+    private static final String VERSION_BINDING = "version";
+    private static final String BINDING_ATTRIBUTE = "calledElementBinding";
+
+    /**
+     * Keeps the number of statement parameters below the limits of all supported databases.
+     */
+    private static final int MAX_DEFINITIONS_PER_UPDATE = 500;
+
+    private final ProcessEngine processEngine;
+    private final String key;
+
+    /**
+     * Tenant of the definitions, {@code null} for definitions without tenant.
+     */
+    private final String tenantId;
+
+    @Setter(AccessLevel.PACKAGE)
+    private int maxDefinitionsPerUpdate = MAX_DEFINITIONS_PER_UPDATE;
+
+    @Override
+    public Integer execute(CommandContext commandContext) {
+        acquireExclusiveLock(commandContext);
+        checkNoVersionBinding(commandContext);
+        List<ProcessDefinition> definitions = createQuery().processDefinitionKey(key).list();
+        Map<String, Integer> versions = new NextVersionCalculator().getCompactedVersions(definitions);
+        List<Map.Entry<String, Integer>> changed = new ArrayList<>();
+        definitions.stream()
+            .filter(definition -> definition.getVersion() != versions.get(definition.getId()))
+            .forEach(definition -> changed.add(new AbstractMap.SimpleImmutableEntry<>(definition.getId(), versions.get(definition.getId()))));
+        Connection connection = commandContext.getDbSqlSession().getSqlSession().getConnection();
+        String table = commandContext.getProcessEngineConfiguration().getDatabaseTablePrefix() + "ACT_RE_PROCDEF";
+        for (int from = 0; from < changed.size(); from += maxDefinitionsPerUpdate) {
+            update(connection, table, changed.subList(from, Math.min(from + maxDefinitionsPerUpdate, changed.size())));
+        }
+        LOGGER.info("Compacted versions of {}: renumbered {} of {} definitions", key, changed.size(), definitions.size());
+        return changed.size();
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private void acquireExclusiveLock(CommandContext commandContext) {
+        if (commandContext.getProcessEngineConfiguration().isDeploymentLockUsed()) {
+            commandContext.getPropertyManager().acquireExclusiveLock();
+            LOGGER.debug("Acquired exclusive db lock");
+        }
+    }
+
+    private ProcessDefinitionQuery createQuery() {
+        ProcessDefinitionQuery query = processEngine.getRepositoryService().createProcessDefinitionQuery();
+        return tenantId == null ? query.withoutTenantId() : query.tenantIdIn(tenantId);
+    }
+
+    /**
+     * Checks definitions that may still start call activities: latest definitions, which start new instances, and definitions with
+     * running instances, of the same tenant or without tenant. Resources are read as they are stored and only resources mentioning
+     * the key are parsed.
+     */
+    private void checkNoVersionBinding(CommandContext commandContext) {
+        Map<String, ProcessDefinition> definitions = new LinkedHashMap<>();
+        createCallerQuery().latestVersion().list().forEach(definition -> definitions.put(definition.getId(), definition));
+        List<String> runningIds = findRunningDefinitionIds(commandContext);
+        runningIds.removeAll(definitions.keySet());
+        for (int from = 0; from < runningIds.size(); from += maxDefinitionsPerUpdate) {
+            String[] ids = runningIds.subList(from, Math.min(from + maxDefinitionsPerUpdate, runningIds.size())).toArray(new String[0]);
+            createCallerQuery().processDefinitionIdIn(ids).list().forEach(definition -> definitions.put(definition.getId(), definition));
+        }
+        Set<String> checkedResources = new HashSet<>();
+        for (ProcessDefinition definition : definitions.values()) {
+            if (!checkedResources.add(definition.getDeploymentId() + "/" + definition.getResourceName())) {
+                continue;
+            }
+            String model = readResource(definition);
+            if (model.contains(key) && model.contains(BINDING_ATTRIBUTE) && hasVersionBinding(model)) {
+                throw new ProcessEngineException("Can't compact versions of " + key + ": " + definition.getId()
+                    + " calls it with version binding");
+            }
+        }
+        LOGGER.debug("Checked {} definitions calling {}", definitions.size(), key);
+    }
+
+    private ProcessDefinitionQuery createCallerQuery() {
+        ProcessDefinitionQuery query = processEngine.getRepositoryService().createProcessDefinitionQuery();
+        return tenantId == null ? query.withoutTenantId() : query.tenantIdIn(tenantId).includeProcessDefinitionsWithoutTenantId();
+    }
+
+    private List<String> findRunningDefinitionIds(CommandContext commandContext) {
+        String table = commandContext.getProcessEngineConfiguration().getDatabaseTablePrefix() + "ACT_RU_EXECUTION";
+        String sql = "SELECT DISTINCT PROC_DEF_ID_ FROM " + table + " WHERE ID_ = PROC_INST_ID_";
+        Connection connection = commandContext.getDbSqlSession().getSqlSession().getConnection();
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql); ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new ProcessEngineException("Failed to read running definitions", e);
+        }
+        return ids;
+    }
+
+    private String readResource(ProcessDefinition definition) {
+        try (InputStream resource = processEngine.getRepositoryService()
+            .getResourceAsStream(definition.getDeploymentId(), definition.getResourceName())) {
+            return StreamUtils.copyToString(resource, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ProcessEngineException("Failed to read model of " + definition.getId(), e);
+        }
+    }
+
+    private boolean hasVersionBinding(String model) {
+        return Bpmn.readModelFromStream(new ByteArrayInputStream(model.getBytes(StandardCharsets.UTF_8)))
+            .getModelElementsByType(CallActivity.class).stream()
+            .anyMatch(callActivity -> key.equals(callActivity.getCalledElement())
+                && VERSION_BINDING.equals(callActivity.getCamundaCalledElementBinding()));
+    }
+
+    private void update(Connection connection, String table, List<Map.Entry<String, Integer>> versions) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET VERSION_ = CASE ID_");
+        versions.forEach(version -> sql.append(" WHEN ? THEN ?"));
+        sql.append(" ELSE VERSION_ END WHERE KEY_ = ? AND ID_ IN (");
+        for (int i = 0; i < versions.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int parameter = 1;
+            for (Map.Entry<String, Integer> version : versions) {
+                statement.setString(parameter++, version.getKey());
+                statement.setInt(parameter++, version.getValue());
+            }
+            statement.setString(parameter++, key);
+            for (Map.Entry<String, Integer> version : versions) {
+                statement.setString(parameter++, version.getKey());
+            }
+            int updated = statement.executeUpdate();
+            Assert.state(updated == versions.size(), () -> "Expected to renumber " + versions.size() + " definitions of " + key
+                + ", renumbered " + updated);
+        } catch (SQLException e) {
+            throw new ProcessEngineException("Failed to compact versions of " + key, e);
+        }
+    }
+}
@@ -19,8 +19,18 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 class DefaultVersionTagComparator implements Comparator<String> {
+    private static final int MAX_PARSED_VERSIONS = 10_000;
+
+    /**
+     * Sort keys of tags seen so far, shared by all comparators. Stops growing at {@link #MAX_PARSED_VERSIONS} entries, later
+     * tags are parsed on every comparison.
+     */
+    private static final ConcurrentMap<String, VersionKey> PARSED_VERSIONS = new ConcurrentHashMap<>();
+
     @Override
     public int compare(String tag1, String tag2) {
         tag1 = StringUtils.trimToNull(tag1);
@@ -32,6 +42,22 @@ class DefaultVersionTagComparator implements Comparator<String> {
         } else if (tag2 == null) {
             return 1;
         }
-        return new ComparableVersion(tag1).compareTo(new ComparableVersion(tag2));
+        return parse(tag1).compareTo(parse(tag2));
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private static VersionKey parse(String tag) {
+        VersionKey version = PARSED_VERSIONS.get(tag);
+        if (version != null) {
+            return version;
+        }
+        version = new VersionKey(tag);
+        if (PARSED_VERSIONS.size() < MAX_PARSED_VERSIONS) {
+            PARSED_VERSIONS.putIfAbsent(tag, version);
+        }
+        return version;
     }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ContextResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Auto-deployment resource read into memory with its version tag and content hash, so that the deployment lock only covers database
+ * work.
+ */
+@Getter
+@RequiredArgsConstructor
+class DeploymentResource {
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final String name;
+
+    /**
+     * Version tag parsed from the name, {@code null} if the name has none.
+     */
+    private final String versionTag;
+
+    private final byte[] content;
+
+    /**
+     * Hex encoded SHA-256 of the {@link #content}.
+     */
+    private final String contentHash;
+
+    /**
+     * Reads all resources on up to {@code parallelism} threads, keeping their order.
+     */
+    public static List<DeploymentResource> load(Resource[] resources, int parallelism) {
+        ResourceNameParser resourceNameParser = new ResourceNameParser();
+        return new ParallelRunner(parallelism, "camunda-deploy-").map(Arrays.asList(resources),
+            resource -> load(resource, resourceNameParser));
+    }
+
+    public boolean isArchive() {
+        return name.endsWith(".bar") || name.endsWith(".zip") || name.endsWith(".jar");
+    }
+
+    /**
+     * Returns the hex encoded SHA-256 of the content, the same as {@code getContentHash()} of a resource with this content.
+     */
+    public static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private static DeploymentResource load(Resource resource, ResourceNameParser resourceNameParser) {
+        String name = getResourceName(resource);
+        Assert.notNull(name, "No name for " + resource);
+        byte[] content;
+        try (InputStream inputStream = resource.getInputStream()) {
+            content = StreamUtils.copyToByteArray(inputStream);
+        } catch (IOException e) {
+            throw new ProcessEngineException("couldn't auto deploy resource '" + resource + "': " + e.getMessage(), e);
+        }
+        return new DeploymentResource(name, resourceNameParser.parseVersion(name), content, hash(content));
+    }
+
+    private static String getResourceName(Resource resource) {
+        if (resource instanceof ContextResource) {
+            return ((ContextResource) resource).getPathWithinContext();
+        } else if (resource instanceof ByteArrayResource) {
+            return resource.getDescription();
+        } else {
+            return resource.getFilename();
+        }
+    }
+}
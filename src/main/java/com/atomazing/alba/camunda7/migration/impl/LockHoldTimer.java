@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.impl.cfg.TransactionListener;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * Records how long the deployment lock is held: the lock is a row lock, so it is released when the transaction of the command that
+ * acquired it completes.
+ */
+final class LockHoldTimer {
+    private LockHoldTimer() {
+    }
+
+    /**
+     * Must be called right after the lock is acquired.
+     */
+    static void start(CommandContext commandContext, MigrationMetrics metrics, String command) {
+        long acquiredAt = System.nanoTime();
+        TransactionListener listener = context -> metrics.recordLockHold(command, System.nanoTime() - acquiredAt);
+        commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED, listener);
+        commandContext.getTransactionContext().addTransactionListener(TransactionState.ROLLED_BACK, listener);
+    }
+}
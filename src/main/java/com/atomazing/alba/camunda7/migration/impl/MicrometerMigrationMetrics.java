@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes migration metrics:
+ * <ul>
+ * <li>{@code camunda.migration.run} timer with {@code outcome},</li>
+ * <li>{@code camunda.migration.key} timer with {@code key},</li>
+ * <li>{@code camunda.migration.step} timer with {@code key}, {@code source} and {@code target},</li>
+ * <li>{@code camunda.migration.processes} counter with {@code key}, {@code source}, {@code target} and {@code outcome}: {@code migrated},
+ * {@code failed} or {@code submitted} to Camunda batches,</li>
+ * <li>{@code camunda.migration.deployment} timer with {@code version},</li>
+ * <li>{@code camunda.migration.lock} timer with {@code command}.</li>
+ * </ul>
+ */
+@RequiredArgsConstructor
+public class MicrometerMigrationMetrics implements MigrationMetrics {
+    private static final String NONE_TAG = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void recordRun(long durationNanos, boolean failed) {
+        Timer.builder("camunda.migration.run")
+            .description("Migration of all process definition keys")
+            .tag("outcome", getOutcome(failed))
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordKey(String key, long durationNanos) {
+        Timer.builder("camunda.migration.key")
+            .description("Migration of all processes of a process definition key")
+            .tag("key", key)
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordStep(String key, String source, String target, long durationNanos) {
+        Timer.builder("camunda.migration.step")
+            .description("Migration of processes from one version tag to the next one")
+            .tags("key", key, "source", toTag(source), "target", toTag(target))
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void countProcesses(String key, String source, String target, int count, boolean failed) {
+        countProcesses(key, source, target, count, getOutcome(failed));
+    }
+
+    @Override
+    public void countSubmittedProcesses(String key, String source, String target, int count) {
+        countProcesses(key, source, target, count, "submitted");
+    }
+
+    @Override
+    public void recordDeployment(String versionTag, long durationNanos) {
+        Timer.builder("camunda.migration.deployment")
+            .description("Deployment of resources with the same version tag")
+            .tag("version", toTag(versionTag))
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordLockHold(String command, long durationNanos) {
+        Timer.builder("camunda.migration.lock")
+            .description("Time the deployment lock is held")
+            .tag("command", command)
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private void countProcesses(String key, String source, String target, int count, String outcome) {
+        Counter.builder("camunda.migration.processes")
+            .description("Processes passed to migrations")
+            .tags("key", key, "source", toTag(source), "target", toTag(target), "outcome", outcome)
+            .register(meterRegistry)
+            .increment(count);
+    }
+
+    private static String getOutcome(boolean failed) {
+        return failed ? "failed" : "migrated";
+    }
+
+    private static String toTag(String value) {
+        return value == null ? NONE_TAG : value;
+    }
+}
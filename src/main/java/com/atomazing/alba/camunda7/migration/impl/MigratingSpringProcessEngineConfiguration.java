@@ -15,27 +15,63 @@
  */
 package com.atomazing.alba.camunda7.migration.impl;
 
+import lombok.Setter;
 import org.apache.commons.lang3.ArrayUtils;
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.impl.bpmn.deployer.BpmnDeployer;
 import org.camunda.bpm.engine.spring.SpringProcessEngineConfiguration;
 
+import java.util.Collections;
+import java.util.List;
+
 public class MigratingSpringProcessEngineConfiguration extends SpringProcessEngineConfiguration {
     private final MigrationAutoStarter migrationAutoStarter;
+    private final boolean checkOverriddenVersionTag;
+    private VersionTagAwareBpmnDeployer versionTagAwareBpmnDeployer;
+
+    /**
+     * Tenants every auto-deployment resource is deployed to, replaces {@link #deploymentTenantId} if not empty.
+     */
+    @Setter
+    private List<String> deploymentTenantIds = Collections.emptyList();
 
     public MigratingSpringProcessEngineConfiguration(MigrationAutoStarter migrationAutoStarter, boolean deployChangedOnly) {
+        this(migrationAutoStarter, deployChangedOnly, true);
+    }
+
+    public MigratingSpringProcessEngineConfiguration(MigrationAutoStarter migrationAutoStarter, boolean deployChangedOnly,
+        boolean checkOverriddenVersionTag) {
         this.migrationAutoStarter = migrationAutoStarter;
         this.deployChangedOnly = deployChangedOnly;
+        this.checkOverriddenVersionTag = checkOverriddenVersionTag;
     }
 
     @Override
     protected void autoDeployResources(ProcessEngine processEngine) {
+        ProcessDefinitionCache definitionCache = new ProcessDefinitionCache(processEngine);
         if (ArrayUtils.isNotEmpty(deploymentResources)) {
-            getCommandExecutorTxRequired().execute(
-                new VersionTagAwareDeployCmd(deploymentName, deploymentResources, deploymentTenantId, true, processEngine)
-            );
+            List<DeploymentResource> resources = DeploymentResource.load(deploymentResources, Runtime.getRuntime().availableProcessors());
+            versionTagAwareBpmnDeployer.setDefinitionCache(definitionCache);
+            try {
+                getCommandExecutorTxRequired().execute(
+                    new VersionTagAwareDeployCmd(deploymentName, resources, getAutoDeploymentTenantIds(), true, processEngine,
+                        migrationAutoStarter.getMetrics())
+                );
+            } finally {
+                versionTagAwareBpmnDeployer.setDefinitionCache(null);
+            }
         }
-        getCommandExecutorTxRequired().execute(new AutoMigrateCmd(migrationAutoStarter, processEngine));
+        if (migrationAutoStarter.isAsync()) {
+            migrationAutoStarter.autoMigrateAsync(processEngine, definitionCache);
+        } else if (migrationAutoStarter.isTransactionPerPage()) {
+            migrationAutoStarter.autoMigrate(processEngine, definitionCache);
+        } else {
+            getCommandExecutorTxRequired().execute(new AutoMigrateCmd(migrationAutoStarter, processEngine, definitionCache));
+        }
+    }
+
+    private List<String> getAutoDeploymentTenantIds() {
+        return deploymentTenantIds.isEmpty() ? Collections.singletonList(deploymentTenantId) : deploymentTenantIds;
     }
 
     @Override
@@ -46,6 +82,8 @@ public class MigratingSpringProcessEngineConfiguration extends SpringProcessEngi
         bpmnDeployer.setBpmnParser(oldBpmnDeployer.getBpmnParser());
         bpmnDeployer.setIdGenerator(oldBpmnDeployer.getIdGenerator());
         bpmnDeployer.setExpressionManager(oldBpmnDeployer.getExpressionManager());
+        bpmnDeployer.setCheckOverriddenVersionTag(checkOverriddenVersionTag);
+        versionTagAwareBpmnDeployer = bpmnDeployer;
 
         return bpmnDeployer;
     }
@@ -16,43 +16,239 @@
 package com.atomazing.alba.camunda7.migration.impl;
 
 import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import lombok.Getter;
+import lombok.Setter;
 import org.camunda.bpm.engine.ProcessEngine;
-import org.camunda.bpm.engine.repository.ResourceDefinition;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import java.util.*;
-import java.util.function.BiConsumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 public class MigrationAutoStarter {
-    private final Map<String, List<CamundaMigration>> migrationsByKey;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigrationAutoStarter.class);
+
+    /**
+     * Validated migration chains by process definition key, target definitions are resolved on every run.
+     */
+    private final Map<String, MigrationChain> chainsByKey;
+
+    private final MigrationFingerprints fingerprints = new MigrationFingerprints();
+
+    /**
+     * Number of processes passed to a single {@link CamundaMigration#migrate} call, {@code 1} migrates processes one by one.
+     */
+    @Setter
+    private int batchSize = 1;
+
+    /**
+     * Maximum number of process ids read from the database at once, raised to {@link #batchSize} if smaller.
+     */
+    @Setter
+    private int pageSize = SyncMigrationStrategy.DEFAULT_PAGE_SIZE;
+
+    /**
+     * Number of definition keys migrated concurrently, definitions of a key in different tenants count as different keys. With more than
+     * one thread every key is migrated and committed in its own transaction, while the calling transaction keeps holding the deployment
+     * lock. With {@link #transactionPerPage} every page takes the deployment lock, so pages of different keys are migrated one at a time.
+     */
+    @Setter
+    private int parallelism = 1;
+
+    /**
+     * Whether every page of processes is migrated and committed in its own transaction holding the deployment lock, with a checkpoint
+     * to resume from after a restart. Always on for {@link #async} migration.
+     */
+    @Getter
+    @Setter
+    private boolean transactionPerPage;
+
+    /**
+     * Whether migration runs in background after deployment instead of blocking engine start-up, see {@link #autoMigrateAsync}.
+     */
+    @Getter
+    @Setter
+    private boolean async;
+
+    /**
+     * Maximum time to wait for Camunda batches submitted by {@link CamundaMigration#async() async} migrations in {@link #async} mode.
+     */
+    @Setter
+    private long batchTimeoutSeconds = SyncMigrationStrategy.DEFAULT_BATCH_TIMEOUT_SECONDS;
+
+    /**
+     * Whether keys whose definitions, migrations and processes on source version tags haven't changed since their last successful
+     * migration are skipped, see {@link MigrationFingerprints}.
+     */
+    @Setter
+    private boolean skipUnchanged = true;
+
+    /**
+     * Receives durations and counts of auto-deployment and migration.
+     */
+    @Getter
+    @Setter
+    private MigrationMetrics metrics = MigrationMetrics.NONE;
+
+    /**
+     * Progress of the latest auto-migration run.
+     */
+    @Getter
+    private volatile MigrationProgress progress = new MigrationProgress();
 
     public MigrationAutoStarter(List<CamundaMigration> migrations) {
-        this.migrationsByKey = groupMigrationsByKey(migrations);
+        this.chainsByKey = createChains(migrations);
     }
 
+    /**
+     * Migrates all keys. Unless {@link #transactionPerPage} is set this must be called in a transaction holding the deployment lock,
+     * see {@link AutoMigrateCmd}.
+     */
     public void autoMigrate(ProcessEngine processEngine) {
-        forEachDeployedDefinitionKey(processEngine, this::migrate);
+        autoMigrate(processEngine, new ProcessDefinitionCache(processEngine));
+    }
+
+    void autoMigrate(ProcessEngine processEngine, ProcessDefinitionCache definitionCache) {
+        MigrationRun run = new MigrationRun(processEngine, new MigrationProgress(), definitionCache, transactionPerPage, false);
+        progress = run.getProgress();
+        migrateAll(run);
+    }
+
+    /**
+     * Starts migration in a background thread and returns immediately. Every page of processes is migrated and committed in its own
+     * transaction holding the deployment lock, so other nodes may deploy in between. {@link CamundaMigration#async() Async} migrations
+     * may hand processes over to Camunda batches executed by the job executor.
+     */
+    public CompletableFuture<Void> autoMigrateAsync(ProcessEngine processEngine) {
+        return autoMigrateAsync(processEngine, new ProcessDefinitionCache(processEngine));
+    }
+
+    CompletableFuture<Void> autoMigrateAsync(ProcessEngine processEngine, ProcessDefinitionCache definitionCache) {
+        MigrationRun run = new MigrationRun(processEngine, new MigrationProgress(), definitionCache, true, true);
+        progress = run.getProgress();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("camunda-migration-async-");
+        threadFactory.setDaemon(true);
+        threadFactory.newThread(() -> {
+            try {
+                migrateAll(run);
+            } catch (Throwable e) {
+                LOGGER.error("Background migration failed", e);
+                run.getProgress().fail(e);
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+            }
+        }).start();
+        return run.getProgress().getCompletion();
+    }
+
+    /**
+     * Returns the migrations a run would apply to deployed definitions right now without executing anything. Processes are only
+     * counted, so this is cheap enough to call on a live engine.
+     */
+    public MigrationPlan plan(ProcessEngine processEngine) {
+        ProcessDefinitionCache definitionCache = new ProcessDefinitionCache(processEngine);
+        MigrationPlanner planner = new MigrationPlanner(definitionCache, processEngine);
+        List<MigrationPlan.KeyPlan> keys = new ArrayList<>();
+        findDeployedChains(definitionCache).forEach(chain -> keys.add(planner.plan(chain)));
+        return new MigrationPlan(keys);
     }
 
     // ===================================================================================================================
     // = Implementation
     // ===================================================================================================================
 
-    private static Map<String, List<CamundaMigration>> groupMigrationsByKey(List<CamundaMigration> migrations) {
+    private static Map<String, MigrationChain> createChains(List<CamundaMigration> migrations) {
         Map<String, List<CamundaMigration>> byKey = new HashMap<>();
         migrations.forEach(migration -> byKey.computeIfAbsent(migration.key(), any -> new ArrayList<>()).add(migration));
-        return byKey;
+        Map<String, MigrationChain> chains = new HashMap<>();
+        byKey.forEach((key, keyMigrations) -> chains.put(key, new MigrationChain(key, keyMigrations)));
+        return chains;
+    }
+
+    /**
+     * Returns chains of keys with migrations for every tenant that has deployed definitions of the key. Definitions of all these keys
+     * are loaded into the cache at once, other keys of the engine are never read.
+     */
+    private List<MigrationChain> findDeployedChains(ProcessDefinitionCache definitionCache) {
+        Set<String> keys = new TreeSet<>(chainsByKey.keySet());
+        definitionCache.preload(keys);
+        return keys.stream()
+            .flatMap(key -> definitionCache.getTenantIds(key).stream().map(tenantId -> chainsByKey.get(key).forTenant(tenantId)))
+            .collect(Collectors.toList());
+    }
+
+    private void migrateAll(MigrationRun run) {
+        long startedAt = System.nanoTime();
+        try {
+            if (parallelism > 1) {
+                migrateConcurrently(run);
+            } else {
+                findDeployedChains(run.getDefinitionCache()).forEach(chain -> migrate(chain, run));
+            }
+            LOGGER.info("Process definition cache: {} hits, {} misses", run.getDefinitionCache().getHits(),
+                run.getDefinitionCache().getMisses());
+            run.getProgress().complete();
+            metrics.recordRun(System.nanoTime() - startedAt, false);
+        } catch (Throwable e) {
+            // errors fail the run as well, otherwise readiness would wait for the run forever
+            run.getProgress().fail(e);
+            metrics.recordRun(System.nanoTime() - startedAt, true);
+            throw e;
+        }
+    }
+
+    private void migrate(MigrationChain chain, MigrationRun run) {
+        boolean fingerprinted = skipUnchanged;
+        if (fingerprinted && fingerprints.isUnchanged(run.getProcessEngine(), chain, getDefinitions(chain, run))) {
+            LOGGER.info("For {} skipping migration, nothing changed since the last one", chain.getName());
+            return;
+        }
+        long startedAt = System.nanoTime();
+        createMigrationStrategy(run).migrate(chain, run.getProcessEngine());
+        metrics.recordKey(chain.getKey(), System.nanoTime() - startedAt);
+        if (fingerprinted) {
+            fingerprints.saveMigrated(run.getProcessEngine(), chain, getDefinitions(chain, run));
+        }
+    }
+
+    private List<ProcessDefinition> getDefinitions(MigrationChain chain, MigrationRun run) {
+        return run.getDefinitionCache().getByKey(chain.getKey(), chain.getTenantId());
+    }
+
+    private void migrateConcurrently(MigrationRun run) {
+        List<MigrationChain> chains = findDeployedChains(run.getDefinitionCache());
+        new ParallelRunner(parallelism, "camunda-migration-").map(chains, chain -> run.isTransactionPerPage()
+            ? migrateInPageTransactions(chain, run)
+            : migrateInNewTransaction(chain, run));
+    }
+
+    private Void migrateInPageTransactions(MigrationChain chain, MigrationRun run) {
+        migrate(chain, run);
+        return null;
     }
 
-    private void forEachDeployedDefinitionKey(ProcessEngine processEngine, BiConsumer<String, ProcessEngine> action) {
-        processEngine.getRepositoryService().createProcessDefinitionQuery()
-            .latestVersion()
-            .list().stream()
-            .map(ResourceDefinition::getKey)
-            .forEach(key -> action.accept(key, processEngine));
+    private Void migrateInNewTransaction(MigrationChain chain, MigrationRun run) {
+        ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) run.getProcessEngine().getProcessEngineConfiguration();
+        return configuration.getCommandExecutorTxRequiresNew().execute(commandContext -> {
+            migrate(chain, run);
+            return null;
+        });
     }
 
-    private void migrate(String key, ProcessEngine processEngine) {
-        List<CamundaMigration> migrations = migrationsByKey.getOrDefault(key, Collections.emptyList());
-        new SyncMigrationStrategy().migrate(key, migrations, processEngine);
+    private MigrationStrategy createMigrationStrategy(MigrationRun run) {
+        SyncMigrationStrategy strategy = batchSize > 1 ? new BatchMigrationStrategy(batchSize) : new SyncMigrationStrategy();
+        strategy.setPageSize(Math.max(pageSize, batchSize));
+        strategy.setProgress(run.getProgress());
+        strategy.setDefinitionCache(run.getDefinitionCache());
+        strategy.setTransactionPerPage(run.isTransactionPerPage());
+        strategy.setAsyncBatchesAllowed(run.isAsyncBatchesAllowed());
+        strategy.setBatchTimeoutSeconds(batchTimeoutSeconds);
+        strategy.setMetrics(metrics);
+        return strategy;
     }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Migrations of a single process definition key indexed by source version tag. Duplicate sources and cycles are rejected on
+ * construction, so following {@link #getStep} from any source always ends. Target definitions are filled in by {@link #resolve}.
+ * Sources are kept in hop order: processes migrated from a source only ever move to sources that come later.
+ * <p>
+ * A chain migrates processes of definitions in a single tenant, see {@link #forTenant}: they are never moved to definitions of
+ * another tenant.
+ */
+class MigrationChain {
+    @Getter
+    private final String key;
+
+    /**
+     * Tenant of migrated definitions, {@code null} for definitions without tenant.
+     */
+    @Getter
+    private final String tenantId;
+
+    private final Map<String, Step> stepsBySource;
+
+    public MigrationChain(String key, List<CamundaMigration> migrations) {
+        this.key = key;
+        this.tenantId = null;
+        Map<String, Step> steps = new LinkedHashMap<>();
+        for (CamundaMigration migration : migrations) {
+            Step duplicate = steps.put(migration.source(), new Step(migration, null));
+            Assert.isTrue(duplicate == null,
+                () -> "Duplicate migrations of " + key + " from " + migration.source() + ": " + getDescription(duplicate.getMigration())
+                    + ", " + getDescription(migration));
+        }
+        Map<String, Integer> hopsToEnd = new HashMap<>();
+        steps.keySet().forEach(source -> hopsToEnd.put(source, countHopsToEnd(source, steps)));
+        List<String> sources = new ArrayList<>(steps.keySet());
+        sources.sort(Comparator.comparing(hopsToEnd::get, Comparator.reverseOrder()));
+        Map<String, Step> ordered = new LinkedHashMap<>();
+        sources.forEach(source -> ordered.put(source, steps.get(source)));
+        this.stepsBySource = Collections.unmodifiableMap(ordered);
+    }
+
+    /**
+     * Returns the same migrations applied to definitions of the tenant, {@code null} for definitions without tenant.
+     */
+    public MigrationChain forTenant(String tenantId) {
+        return new MigrationChain(key, tenantId, stepsBySource);
+    }
+
+    /**
+     * Returns a chain with target definitions taken from the {@code definitionCache}, the latest version of the target version tag in
+     * the tenant. Steps with a target that is not deployed keep a {@code null} target definition.
+     */
+    public MigrationChain resolve(ProcessDefinitionCache definitionCache) {
+        Map<String, Step> resolved = new LinkedHashMap<>();
+        stepsBySource.forEach((source, step) -> resolved.put(source,
+            new Step(step.getMigration(), definitionCache.getByKeyAndVersionTag(key, tenantId, step.getMigration().target()))));
+        return new MigrationChain(key, tenantId, Collections.unmodifiableMap(resolved));
+    }
+
+    /**
+     * Returns the key followed by {@code @tenantId} for definitions of a tenant. Process definition keys can't contain {@code @}, so
+     * names of different chains never collide.
+     */
+    public String getName() {
+        return tenantId == null ? key : key + "@" + tenantId;
+    }
+
+    public boolean isEmpty() {
+        return stepsBySource.isEmpty();
+    }
+
+    /**
+     * Returns source version tags in hop order.
+     */
+    public Set<String> getSourceVersionTags() {
+        return stepsBySource.keySet();
+    }
+
+    /**
+     * Returns the step migrating processes of the {@code versionTag}, {@code null} if they are already at the end of the chain.
+     */
+    public Step getStep(String versionTag) {
+        return stepsBySource.get(versionTag);
+    }
+
+    /**
+     * Returns a hash of the migrations and their classes, which changes whenever a migration is added, removed or replaced.
+     */
+    public String getHash() {
+        String migrations = stepsBySource.values().stream()
+            .map(Step::getMigration)
+            .map(migration -> getDescription(migration) + " " + migration.getClass().getName())
+            .sorted()
+            .collect(Collectors.joining("\n"));
+        return DigestUtils.md5DigestAsHex(migrations.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Step {
+        private final CamundaMigration migration;
+        private final ProcessDefinition targetDefinition;
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private MigrationChain(String key, String tenantId, Map<String, Step> stepsBySource) {
+        this.key = key;
+        this.tenantId = tenantId;
+        this.stepsBySource = stepsBySource;
+    }
+
+    private int countHopsToEnd(String source, Map<String, Step> steps) {
+        Set<String> visited = new LinkedHashSet<>();
+        String versionTag = source;
+        while (steps.containsKey(versionTag)) {
+            if (!visited.add(versionTag)) {
+                throw new IllegalArgumentException("Migrations of " + key + " form a cycle: " + String.join(" -> ", visited) + " -> "
+                    + versionTag);
+            }
+            versionTag = steps.get(versionTag).getMigration().target();
+        }
+        return visited.size();
+    }
+
+    private static String getDescription(CamundaMigration migration) {
+        return migration.key() + " " + migration.source() + " -> " + migration.target();
+    }
+}
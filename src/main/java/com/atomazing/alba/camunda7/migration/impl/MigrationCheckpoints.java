@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+
+/**
+ * Stores the last migrated process of a {@link MigrationChain#getName chain} in the engine property table, so that paged migration
+ * interrupted by a crash or restart resumes after it instead of scanning the step from the beginning.
+ * <p>
+ * A checkpoint is saved in the same transaction as the page it describes and is removed once the chain is fully migrated.
+ */
+class MigrationCheckpoints {
+    private static final String SEPARATOR = " ";
+
+    private final MigrationProperties properties = new MigrationProperties("camunda-migration.checkpoint.");
+
+    /**
+     * Returns the id of the last migrated process of {@code step}, or {@code null} if the saved checkpoint is for another step.
+     */
+    public String findLastProcessId(ProcessEngine processEngine, String chainName, String step) {
+        String value = properties.get(processEngine, chainName);
+        if (value == null) {
+            return null;
+        }
+        int separator = value.lastIndexOf(SEPARATOR);
+        return value.substring(0, separator).equals(step) ? value.substring(separator + 1) : null;
+    }
+
+    public void save(ProcessEngine processEngine, String chainName, String step, String lastProcessId) {
+        properties.set(processEngine, chainName, step + SEPARATOR + lastProcessId);
+    }
+
+    public void clear(ProcessEngine processEngine, String chainName) {
+        properties.delete(processEngine, chainName);
+    }
+}
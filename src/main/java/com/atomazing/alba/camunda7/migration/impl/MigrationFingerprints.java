@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.engine.repository.ResourceDefinition;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Stores what a key looked like in a tenant after its last migration in the engine property table: a hash of its deployed definitions,
+ * a hash of its migration chain and the number of processes left on source version tags. A key with the same fingerprint on the next
+ * start has nothing new to migrate.
+ */
+class MigrationFingerprints {
+    private static final String SEPARATOR = " ";
+
+    private final MigrationProperties properties = new MigrationProperties("camunda-migration.fingerprint.");
+
+    /**
+     * Returns whether the key was fully migrated with the same definitions and chain, and no processes appeared on source version tags
+     * since. Processes are counted with a single query for up to 1000 source definitions, and only if the rest of
+     * the fingerprint matches.
+     */
+    public boolean isUnchanged(ProcessEngine processEngine, MigrationChain chain, List<ProcessDefinition> definitions) {
+        String saved = properties.get(processEngine, chain.getName());
+        String definitionsAndChain = getDefinitionsAndChainHash(chain, definitions);
+        return saved != null
+            && saved.startsWith(definitionsAndChain + SEPARATOR)
+            && saved.equals(definitionsAndChain + SEPARATOR + countSourceProcesses(processEngine, chain, definitions));
+    }
+
+    /**
+     * Saves the fingerprint of a key after successful migration, which leaves no processes on source version tags.
+     */
+    public void saveMigrated(ProcessEngine processEngine, MigrationChain chain, List<ProcessDefinition> definitions) {
+        properties.set(processEngine, chain.getName(), getDefinitionsAndChainHash(chain, definitions) + SEPARATOR + 0);
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private String getDefinitionsAndChainHash(MigrationChain chain, List<ProcessDefinition> definitions) {
+        String definitionIds = definitions.stream()
+            .map(ResourceDefinition::getId)
+            .sorted()
+            .collect(Collectors.joining(SEPARATOR));
+        return hash(definitionIds) + SEPARATOR + chain.getHash();
+    }
+
+    private long countSourceProcesses(ProcessEngine processEngine, MigrationChain chain, List<ProcessDefinition> definitions) {
+        List<String> definitionIds = definitions.stream()
+            .filter(definition -> chain.getSourceVersionTags().contains(StringUtils.trimToNull(definition.getVersionTag())))
+            .map(ResourceDefinition::getId)
+            .collect(Collectors.toList());
+        return ProcessInstanceCounter.countByDefinitionIds(processEngine, definitionIds);
+    }
+
+    private static String hash(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
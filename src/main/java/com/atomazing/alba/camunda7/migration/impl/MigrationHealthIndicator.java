@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * Reports {@code OUT_OF_SERVICE} while auto-migration is running, {@code DOWN} if it failed and {@code UP} once it is done.
+ */
+@RequiredArgsConstructor
+public class MigrationHealthIndicator extends AbstractHealthIndicator {
+    private final MigrationAutoStarter migrationAutoStarter;
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        MigrationProgress progress = migrationAutoStarter.getProgress();
+        if (!progress.isDone()) {
+            builder.outOfService();
+        } else if (progress.isFailed()) {
+            builder.down();
+        } else {
+            builder.up();
+        }
+        builder
+            .withDetail("totalProcesses", progress.getTotalProcesses())
+            .withDetail("migratedProcesses", progress.getMigratedProcesses());
+    }
+}
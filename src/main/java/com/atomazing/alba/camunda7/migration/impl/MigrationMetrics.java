@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+/**
+ * Receives durations and counts of auto-deployment and migration. {@link #NONE} ignores them, {@link MicrometerMigrationMetrics}
+ * publishes them to a Micrometer registry.
+ */
+public interface MigrationMetrics {
+    MigrationMetrics NONE = new MigrationMetrics() {
+    };
+
+    /**
+     * Whole migration run over all keys.
+     */
+    default void recordRun(long durationNanos, boolean failed) {
+    }
+
+    default void recordKey(String key, long durationNanos) {
+    }
+
+    /**
+     * Migration of a whole cohort from the {@code source} to the {@code target} version tag.
+     */
+    default void recordStep(String key, String source, String target, long durationNanos) {
+    }
+
+    /**
+     * Processes passed to a single {@code CamundaMigration.migrate} call that migrated them or failed.
+     */
+    default void countProcesses(String key, String source, String target, int count, boolean failed) {
+    }
+
+    /**
+     * Processes passed to a single {@code CamundaMigration.migrate} call that handed them over to Camunda batches, which may still fail
+     * to migrate them.
+     */
+    default void countSubmittedProcesses(String key, String source, String target, int count) {
+    }
+
+    /**
+     * Deployment of all resources with the version tag.
+     */
+    default void recordDeployment(String versionTag, long durationNanos) {
+    }
+
+    /**
+     * Time from acquiring the deployment lock by the {@code command} until its transaction completes.
+     */
+    default void recordLockHold(String command, long durationNanos) {
+    }
+}
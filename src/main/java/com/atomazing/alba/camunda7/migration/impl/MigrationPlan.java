@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Migrations that an auto-migration run would apply right now, see {@link MigrationAutoStarter#plan}.
+ */
+@Getter
+@RequiredArgsConstructor
+public class MigrationPlan {
+    private final List<KeyPlan> keys;
+
+    public long getTotalProcesses() {
+        return keys.stream().mapToLong(KeyPlan::getTotalProcesses).sum();
+    }
+
+    public boolean isExecutable() {
+        return keys.stream().allMatch(KeyPlan::isExecutable);
+    }
+
+    /**
+     * Hops of a single process definition key in a tenant in the order they are applied.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class KeyPlan {
+        private final String key;
+
+        /**
+         * Tenant of migrated definitions, {@code null} for definitions without tenant.
+         */
+        private final String tenantId;
+
+        private final List<Hop> hops;
+
+        public long getTotalProcesses() {
+            return hops.stream().mapToLong(Hop::getProcesses).sum();
+        }
+
+        public boolean isExecutable() {
+            return hops.stream().allMatch(hop -> hop.getCohort() == 0 || hop.getTargetStatus() != TargetStatus.MISSING);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Hop {
+        private final String source;
+        private final String target;
+
+        /**
+         * Processes currently on definitions with the source version tag.
+         */
+        private final long processes;
+
+        /**
+         * Processes migrated by this hop: {@link #processes} plus processes brought to the source version tag by earlier hops.
+         */
+        private final long cohort;
+
+        /**
+         * Definition processes are migrated to, {@code null} if the target version tag is not deployed.
+         */
+        private final String targetDefinitionId;
+
+        private final TargetStatus targetStatus;
+    }
+
+    public enum TargetStatus {
+        FOUND,
+
+        /**
+         * The target version tag is not deployed, migration of a non-empty cohort fails.
+         */
+        MISSING,
+
+        /**
+         * Several definitions share the target version tag, processes are migrated to the latest of them.
+         */
+        AMBIGUOUS
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Builds {@link MigrationPlan.KeyPlan key plans} from count queries only, nothing is loaded or migrated.
+ */
+@RequiredArgsConstructor
+class MigrationPlanner {
+    private final ProcessDefinitionCache definitionCache;
+
+    /**
+     * Counts processes of a definition.
+     */
+    private final ToLongFunction<ProcessDefinition> processCounter;
+
+    public MigrationPlanner(ProcessDefinitionCache definitionCache, ProcessEngine processEngine) {
+        this(definitionCache, definition -> processEngine.getRuntimeService().createProcessInstanceQuery()
+            .processDefinitionId(definition.getId())
+            .count());
+    }
+
+    /**
+     * Walks the chain the way {@link SyncMigrationStrategy} does: every hop carries its whole cohort to the target version tag.
+     */
+    public MigrationPlan.KeyPlan plan(MigrationChain unresolvedChain) {
+        String key = unresolvedChain.getKey();
+        MigrationChain chain = unresolvedChain.resolve(definitionCache);
+        List<ProcessDefinition> definitions = definitionCache.getByKey(key, chain.getTenantId());
+        Map<String, Long> carried = new HashMap<>();
+        List<MigrationPlan.Hop> hops = new ArrayList<>();
+        for (String source : chain.getSourceVersionTags()) {
+            MigrationChain.Step step = chain.getStep(source);
+            String target = step.getMigration().target();
+            long processes = definitions.stream()
+                .filter(definition -> Objects.equals(getVersionTag(definition), source))
+                .mapToLong(processCounter)
+                .sum();
+            long cohort = processes + carried.getOrDefault(source, 0L);
+            carried.merge(target, cohort, Long::sum);
+            ProcessDefinition targetDefinition = step.getTargetDefinition();
+            hops.add(new MigrationPlan.Hop(source, target, processes, cohort,
+                targetDefinition == null ? null : targetDefinition.getId(), getTargetStatus(definitions, target)));
+        }
+        return new MigrationPlan.KeyPlan(key, chain.getTenantId(), hops);
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private MigrationPlan.TargetStatus getTargetStatus(List<ProcessDefinition> definitions, String target) {
+        long count = definitions.stream()
+            .filter(definition -> Objects.equals(getVersionTag(definition), target))
+            .count();
+        if (count == 0) {
+            return MigrationPlan.TargetStatus.MISSING;
+        }
+        return count == 1 ? MigrationPlan.TargetStatus.FOUND : MigrationPlan.TargetStatus.AMBIGUOUS;
+    }
+
+    private String getVersionTag(ProcessDefinition definition) {
+        return StringUtils.trimToNull(definition.getVersionTag());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a single auto-migration run.
+ */
+public class MigrationProgress {
+    private final AtomicLong totalProcesses = new AtomicLong();
+    private final AtomicLong migratedProcesses = new AtomicLong();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    /**
+     * Number of processes found on migration sources so far, grows while keys are being processed.
+     */
+    public long getTotalProcesses() {
+        return totalProcesses.get();
+    }
+
+    public long getMigratedProcesses() {
+        return migratedProcesses.get();
+    }
+
+    /**
+     * Completes when every key is migrated, or exceptionally with the first migration failure.
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public boolean isFailed() {
+        return completion.isCompletedExceptionally();
+    }
+
+    void addTotalProcesses(long count) {
+        totalProcesses.addAndGet(count);
+    }
+
+    void addMigratedProcesses(long count) {
+        migratedProcesses.addAndGet(count);
+    }
+
+    void complete() {
+        completion.complete(null);
+    }
+
+    void fail(Throwable failure) {
+        completion.completeExceptionally(failure);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.persistence.entity.PropertyEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Properties of {@link MigrationChain#getName chains} in the engine property table, named by a prefix and the chain name, hashed if
+ * the name doesn't fit the column. A property is read by its name alone, the table holds a row for every chain.
+ */
+@RequiredArgsConstructor
+class MigrationProperties {
+    private static final int MAX_PROPERTY_NAME_LENGTH = 64;
+
+    private final String prefix;
+
+    /**
+     * Returns the value of the chain's property, {@code null} if there is none.
+     */
+    public String get(ProcessEngine processEngine, String chainName) {
+        ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) processEngine.getProcessEngineConfiguration();
+        PropertyEntity property = configuration.getCommandExecutorTxRequired().execute(commandContext ->
+            commandContext.getPropertyManager().findPropertyById(getPropertyName(chainName)));
+        return property == null ? null : property.getValue();
+    }
+
+    public void set(ProcessEngine processEngine, String chainName, String value) {
+        processEngine.getManagementService().setProperty(getPropertyName(chainName), value);
+    }
+
+    public void delete(ProcessEngine processEngine, String chainName) {
+        processEngine.getManagementService().deleteProperty(getPropertyName(chainName));
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private String getPropertyName(String chainName) {
+        String name = prefix + chainName;
+        return name.length() <= MAX_PROPERTY_NAME_LENGTH
+            ? name
+            : prefix + DigestUtils.md5DigestAsHex(chainName.getBytes(StandardCharsets.UTF_8));
+    }
+}
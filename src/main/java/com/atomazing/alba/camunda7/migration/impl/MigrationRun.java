@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.camunda.bpm.engine.ProcessEngine;
+
+/**
+ * Settings and state shared by all keys of a single auto-migration run.
+ */
+@Getter
+@RequiredArgsConstructor
+class MigrationRun {
+    private final ProcessEngine processEngine;
+    private final MigrationProgress progress;
+
+    /**
+     * Definitions shared with the deployment preceding the run.
+     */
+    private final ProcessDefinitionCache definitionCache;
+
+    /**
+     * Whether every page is migrated in its own transaction holding the deployment lock, see {@link MigrateChunkCmd}.
+     */
+    private final boolean transactionPerPage;
+
+    /**
+     * Whether {@link com.atomazing.alba.camunda7.migration.api.CamundaMigration#async() async} migrations may submit Camunda batches.
+     * Requires committed pages and a running job executor, so it is only allowed in background runs.
+     */
+    private final boolean asyncBatchesAllowed;
+}
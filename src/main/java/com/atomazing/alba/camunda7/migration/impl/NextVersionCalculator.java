@@ -15,8 +15,6 @@
  */
 package com.atomazing.alba.camunda7.migration.impl;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.engine.repository.ResourceDefinition;
 import org.springframework.util.Assert;
@@ -27,35 +25,65 @@ import java.util.function.Function;
 class NextVersionCalculator {
     private static final int VERSION_RESERVE = 1000;
 
+    /**
+     * Definitions of a key by version tag and then by version, a new definition without version comes last within its tag:
+     * {@code "" 1 < "" 2 < "alpha" 3 < "alpha" 4 < "alpha" 0 < "beta" 5}.
+     */
+    public static final Comparator<ProcessDefinition> VERSION_ORDER =
+        Comparator.comparing(ProcessDefinition::getVersionTag, new DefaultVersionTagComparator())
+            .thenComparing(ResourceDefinition::getVersion, NextVersionCalculator::compareVersions);
+
+    /**
+     * Finds neighbours of the new definition with a single pass over unsorted existing definitions of its key.
+     */
     public int getNextVersion(ProcessDefinition newDefinition, List<ProcessDefinition> existingDefinitions) {
-        Pair<ProcessDefinition, ProcessDefinition> neighbours = getNeighbours(newDefinition, existingDefinitions);
-        return getVersionBetween(newDefinition, neighbours.getLeft(), neighbours.getRight());
+        ProcessDefinition left = null;
+        ProcessDefinition right = null;
+        for (ProcessDefinition definition : existingDefinitions) {
+            int order = VERSION_ORDER.compare(definition, newDefinition);
+            if (order < 0 && (left == null || VERSION_ORDER.compare(definition, left) > 0)) {
+                left = definition;
+            } else if (order > 0 && (right == null || VERSION_ORDER.compare(definition, right) < 0)) {
+                right = definition;
+            }
+        }
+        return getVersionBetween(newDefinition, left, right);
     }
 
-    // ===================================================================================================================
-    // = Implementation
-    // ===================================================================================================================
+    /**
+     * Finds neighbours of the new definition in existing definitions of its key sorted by {@link #VERSION_ORDER} with a binary search,
+     * so an index kept up to date between calls makes every call {@code O(log n)}.
+     */
+    public int getNextVersion(ProcessDefinition newDefinition, NavigableSet<ProcessDefinition> index) {
+        Assert.isTrue(index.comparator() == VERSION_ORDER, "Definitions must be sorted by VERSION_ORDER");
+        return getVersionBetween(newDefinition, index.lower(newDefinition), index.higher(newDefinition));
+    }
 
-    private Pair<ProcessDefinition, ProcessDefinition> getNeighbours(ProcessDefinition definition, List<ProcessDefinition> definitions) {
-        if (definitions.isEmpty()) {
-            return new ImmutablePair<>(null, null);
-        }
+    /**
+     * Returns evenly spaced versions by definition id that keep the order of {@code definitions} of a single key: the first definition
+     * of every version tag starts at the next multiple of {@value #VERSION_RESERVE}, others follow it one by one.
+     */
+    public Map<String, Integer> getCompactedVersions(List<ProcessDefinition> definitions) {
         List<ProcessDefinition> sorted = new ArrayList<>(definitions);
-        sorted.add(definition);
-        sorted.sort(createComparator());
-        int index = sorted.indexOf(definition);
-        ProcessDefinition left = index > 0 ? sorted.get(index - 1) : null;
-        ProcessDefinition right = index < sorted.size() - 1 ? sorted.get(index + 1) : null;
-        return new ImmutablePair<>(left, right);
+        sorted.sort(VERSION_ORDER);
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        ProcessDefinition previous = null;
+        long version = 0;
+        for (ProcessDefinition definition : sorted) {
+            boolean sameTag = previous != null && Objects.equals(previous.getVersionTag(), definition.getVersionTag());
+            version = sameTag ? version + 1 : (version / VERSION_RESERVE + 1) * VERSION_RESERVE;
+            Assert.isTrue(version <= Integer.MAX_VALUE, () -> "Too many definitions of " + definition.getKey() + " to compact");
+            versions.put(definition.getId(), (int) version);
+            previous = definition;
+        }
+        return versions;
     }
 
-    private Comparator<ProcessDefinition> createComparator() {
-        // "" 1 < "" 2 < "alpha" 3 < "alpha" 4 < "alpha" 0 < "beta" 5
-        return Comparator.comparing(ProcessDefinition::getVersionTag, new DefaultVersionTagComparator())
-            .thenComparing(ResourceDefinition::getVersion, this::compareVersions);
-    }
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
 
-    private int compareVersions(int v1, int v2) {
+    private static int compareVersions(int v1, int v2) {
         if (v1 == v2) {
             return 0;
         } else if (v1 == 0) {
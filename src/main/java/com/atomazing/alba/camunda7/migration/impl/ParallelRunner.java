@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Applies a function to a list of items on a fixed pool of threads and waits for all of them.
+ */
+class ParallelRunner {
+    private final int parallelism;
+    private final String threadNamePrefix;
+
+    public ParallelRunner(int parallelism, String threadNamePrefix) {
+        Assert.isTrue(parallelism > 0, () -> "Parallelism must be positive: " + parallelism);
+        this.parallelism = parallelism;
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Returns results in the order of {@code items}. Every item is processed even if some of them fail, then the first failure is
+     * rethrown with the others added as suppressed.
+     */
+    public <T, R> List<R> map(List<T> items, Function<T, R> function) {
+        if (parallelism == 1 || items.size() <= 1) {
+            List<R> results = new ArrayList<>(items.size());
+            items.forEach(item -> results.add(function.apply(item)));
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()),
+            new CustomizableThreadFactory(threadNamePrefix));
+        try {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            items.forEach(item -> futures.add(executor.submit(() -> function.apply(item))));
+            return await(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private <R> List<R> await(List<Future<R>> futures) {
+        List<R> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + threadNamePrefix + " tasks", e);
+            } catch (ExecutionException e) {
+                RuntimeException cause = asRuntimeException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private RuntimeException asRuntimeException(Throwable throwable) {
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new IllegalStateException(throwable);
+    }
+}
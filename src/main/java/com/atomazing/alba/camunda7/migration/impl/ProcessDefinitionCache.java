@@ -0,0 +1,215 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Process definitions of a single deployment and migration run. Definitions of a key are loaded with one query on first access and
+ * indexed by tenant, id and version tag, definitions deployed during the run are added with {@link #put}. Like Camunda, versions are
+ * numbered per key and tenant, so definitions of other tenants are never returned for a tenant, {@code null} meaning definitions
+ * without tenant. Thread-safe.
+ */
+class ProcessDefinitionCache {
+    /**
+     * Maximum number of keys in a single {@code IN} clause.
+     */
+    private static final int MAX_IN_SIZE = 1000;
+
+    private final Function<String, List<? extends ProcessDefinition>> loader;
+    private final Function<Collection<String>, List<? extends ProcessDefinition>> bulkLoader;
+    private final ConcurrentMap<String, KeyDefinitions> definitionsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ProcessDefinitionCache(ProcessEngine processEngine) {
+        this(key -> processEngine.getRepositoryService().createProcessDefinitionQuery()
+                .processDefinitionKey(key)
+                .list(),
+            keys -> processEngine.getRepositoryService().createProcessDefinitionQuery()
+                .processDefinitionKeysIn(keys.toArray(new String[0]))
+                .list());
+    }
+
+    public ProcessDefinitionCache(Function<String, List<? extends ProcessDefinition>> loader) {
+        this(loader, keys -> keys.stream()
+            .flatMap(key -> loader.apply(key).stream())
+            .collect(Collectors.toList()));
+    }
+
+    public ProcessDefinitionCache(Function<String, List<? extends ProcessDefinition>> loader,
+        Function<Collection<String>, List<? extends ProcessDefinition>> bulkLoader) {
+        this.loader = loader;
+        this.bulkLoader = bulkLoader;
+    }
+
+    /**
+     * Loads definitions of all keys not loaded yet with one query per {@link #MAX_IN_SIZE} keys.
+     */
+    public void preload(Collection<String> keys) {
+        List<String> missing = keys.stream()
+            .filter(key -> !definitionsByKey.containsKey(key))
+            .distinct()
+            .collect(Collectors.toList());
+        for (int from = 0; from < missing.size(); from += MAX_IN_SIZE) {
+            List<String> chunk = missing.subList(from, Math.min(from + MAX_IN_SIZE, missing.size()));
+            Map<String, KeyDefinitions> loaded = new HashMap<>();
+            chunk.forEach(key -> loaded.put(key, new KeyDefinitions()));
+            bulkLoader.apply(chunk).forEach(definition -> loaded.get(definition.getKey()).put(definition));
+            loaded.forEach(definitionsByKey::putIfAbsent);
+            misses.addAndGet(chunk.size());
+        }
+    }
+
+    /**
+     * Returns all definitions of the key in all tenants.
+     */
+    public List<ProcessDefinition> getByKey(String key) {
+        return getKeyDefinitions(key).getAll();
+    }
+
+    /**
+     * Returns tenants with definitions of the key, {@code null} first if there are definitions without tenant.
+     */
+    public List<String> getTenantIds(String key) {
+        return getKeyDefinitions(key).getTenantIds();
+    }
+
+    /**
+     * Returns all definitions of the key in the tenant.
+     */
+    public List<ProcessDefinition> getByKey(String key, String tenantId) {
+        return getKeyDefinitions(key).getAll(tenantId);
+    }
+
+    /**
+     * Returns the latest version of the key in the tenant with the version tag, {@code null} if there is none.
+     */
+    public ProcessDefinition getByKeyAndVersionTag(String key, String tenantId, String versionTag) {
+        return getKeyDefinitions(key).getLatest(tenantId, versionTag);
+    }
+
+    /**
+     * Applies the {@code function} to definitions of the key in the tenant sorted by {@link NextVersionCalculator#VERSION_ORDER}. The
+     * index is kept up to date by {@link #put} and must not be used outside of the function.
+     */
+    public <T> T withVersionIndex(String key, String tenantId, Function<NavigableSet<ProcessDefinition>, T> function) {
+        return getKeyDefinitions(key).withVersionIndex(tenantId, function);
+    }
+
+    /**
+     * Adds a definition deployed during the run. Definitions of keys not loaded yet are skipped, they are read with the key.
+     */
+    public void put(ProcessDefinition definition) {
+        KeyDefinitions definitions = definitionsByKey.get(definition.getKey());
+        if (definitions != null) {
+            definitions.put(definition);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private KeyDefinitions getKeyDefinitions(String key) {
+        KeyDefinitions definitions = definitionsByKey.get(key);
+        if (definitions != null) {
+            hits.incrementAndGet();
+            return definitions;
+        }
+        misses.incrementAndGet();
+        KeyDefinitions loaded = new KeyDefinitions();
+        loader.apply(key).forEach(loaded::put);
+        definitions = definitionsByKey.putIfAbsent(key, loaded);
+        return definitions == null ? loaded : definitions;
+    }
+
+    private static String getVersionTag(ProcessDefinition definition) {
+        return StringUtils.trimToNull(definition.getVersionTag());
+    }
+
+    private static class KeyDefinitions {
+        private final Map<String, TenantDefinitions> byTenantId = new HashMap<>();
+
+        synchronized void put(ProcessDefinition definition) {
+            byTenantId.computeIfAbsent(definition.getTenantId(), any -> new TenantDefinitions()).put(definition);
+        }
+
+        synchronized List<ProcessDefinition> getAll() {
+            List<ProcessDefinition> definitions = new ArrayList<>();
+            byTenantId.values().forEach(tenant -> definitions.addAll(tenant.byId.values()));
+            return definitions;
+        }
+
+        synchronized List<String> getTenantIds() {
+            List<String> tenantIds = new ArrayList<>(byTenantId.keySet());
+            tenantIds.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+            return tenantIds;
+        }
+
+        synchronized List<ProcessDefinition> getAll(String tenantId) {
+            TenantDefinitions tenant = byTenantId.get(tenantId);
+            return tenant == null ? new ArrayList<>() : new ArrayList<>(tenant.byId.values());
+        }
+
+        synchronized ProcessDefinition getLatest(String tenantId, String versionTag) {
+            TenantDefinitions tenant = byTenantId.get(tenantId);
+            return tenant == null ? null : tenant.latestByVersionTag.get(versionTag);
+        }
+
+        synchronized <T> T withVersionIndex(String tenantId, Function<NavigableSet<ProcessDefinition>, T> function) {
+            TenantDefinitions tenant = byTenantId.get(tenantId);
+            return function.apply(Collections.unmodifiableNavigableSet(tenant == null ? new TreeSet<>(NextVersionCalculator.VERSION_ORDER)
+                : tenant.versionIndex));
+        }
+    }
+
+    /**
+     * Definitions of a key in a single tenant, guarded by the {@link KeyDefinitions} they belong to.
+     */
+    private static class TenantDefinitions {
+        private final Map<String, ProcessDefinition> byId = new LinkedHashMap<>();
+        private final Map<String, ProcessDefinition> latestByVersionTag = new HashMap<>();
+        private final NavigableSet<ProcessDefinition> versionIndex = new TreeSet<>(NextVersionCalculator.VERSION_ORDER);
+
+        void put(ProcessDefinition definition) {
+            ProcessDefinition previous = byId.put(definition.getId(), definition);
+            if (previous != null) {
+                versionIndex.remove(previous);
+            }
+            versionIndex.add(definition);
+            latestByVersionTag.merge(getVersionTag(definition), definition,
+                (first, second) -> first.getVersion() >= second.getVersion() ? first : second);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+
+/**
+ * Maintenance tool restoring even spacing of process definition versions of a key after many deployments between existing version
+ * tags have used up the gaps. Other engines sharing the database keep old versions in their deployment caches until restarted, so
+ * run it while they are stopped.
+ */
+public class ProcessDefinitionVersionCompactor {
+    /**
+     * Renumbers versions of the key's definitions without tenant, see {@link #compact(ProcessEngine, String, String)}.
+     */
+    public int compact(ProcessEngine processEngine, String key) {
+        return compact(processEngine, key, null);
+    }
+
+    /**
+     * Renumbers versions of the key's definitions of the tenant in a single transaction holding the deployment lock: the first
+     * definition of every version tag gets the next multiple of 1000, later definitions of the tag follow it one by one. Fails if a
+     * call activity of a latest definition or of a definition with running instances calls the key with {@code version} binding.
+     *
+     * @return number of renumbered definitions
+     */
+    public int compact(ProcessEngine processEngine, String key, String tenantId) {
+        ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) processEngine.getProcessEngineConfiguration();
+        int renumbered = configuration.getCommandExecutorTxRequired().execute(new CompactVersionsCmd(processEngine, key, tenantId));
+        configuration.getDeploymentCache().discardProcessDefinitionCache();
+        return renumbered;
+    }
+}
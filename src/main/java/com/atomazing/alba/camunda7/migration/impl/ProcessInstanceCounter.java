@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.runtime.NativeProcessInstanceQuery;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+
+import java.util.List;
+
+/**
+ * Counts process instances of several definitions without loading them: {@code ProcessInstanceQuery} only filters by a single
+ * definition id.
+ */
+final class ProcessInstanceCounter {
+    /**
+     * Maximum number of definition ids in a single {@code IN} clause.
+     */
+    private static final int MAX_IN_SIZE = 1000;
+
+    private ProcessInstanceCounter() {
+    }
+
+    /**
+     * Counts with a single query for up to {@link #MAX_IN_SIZE} definitions.
+     */
+    static long countByDefinitionIds(ProcessEngine processEngine, List<String> definitionIds) {
+        String table = processEngine.getManagementService().getTableName(ProcessInstance.class);
+        long count = 0;
+        for (int from = 0; from < definitionIds.size(); from += MAX_IN_SIZE) {
+            List<String> ids = definitionIds.subList(from, Math.min(from + MAX_IN_SIZE, definitionIds.size()));
+            NativeProcessInstanceQuery query = processEngine.getRuntimeService().createNativeProcessInstanceQuery();
+            StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(table)
+                .append(" WHERE ID_ = PROC_INST_ID_ AND PROC_DEF_ID_ IN (");
+            for (int i = 0; i < ids.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("#{id").append(i).append("}");
+                query.parameter("id" + i, ids.get(i));
+            }
+            count += query.sql(sql.append(")").toString()).count();
+        }
+        return count;
+    }
+}
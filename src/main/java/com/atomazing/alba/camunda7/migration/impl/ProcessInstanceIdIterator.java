@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.runtime.NativeProcessInstanceQuery;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Iterates over ids of processes running on a process definition in pages of at most {@code pageSize} ids.
+ * <p>
+ * Pages are read with keyset pagination ordered by process instance id, so only one page is held in memory and processes migrated away
+ * from the definition while iterating don't shift the following pages.
+ */
+class ProcessInstanceIdIterator implements Iterator<List<String>> {
+    private final ProcessEngine processEngine;
+    private final String definitionId;
+    private final int pageSize;
+
+    private String lastId;
+    private List<String> page;
+
+    public ProcessInstanceIdIterator(ProcessEngine processEngine, String definitionId, int pageSize) {
+        this(processEngine, definitionId, pageSize, null);
+    }
+
+    /**
+     * Starts with processes whose ids are greater than {@code startAfterId}, or with the first process if it is {@code null}.
+     */
+    public ProcessInstanceIdIterator(ProcessEngine processEngine, String definitionId, int pageSize, String startAfterId) {
+        Assert.isTrue(pageSize > 0, () -> "Page size must be positive: " + pageSize);
+        this.processEngine = processEngine;
+        this.definitionId = definitionId;
+        this.pageSize = pageSize;
+        this.lastId = startAfterId;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page == null) {
+            page = readPage();
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> result = page;
+        lastId = result.get(result.size() - 1);
+        page = result.size() < pageSize ? Collections.<String>emptyList() : null;
+        return result;
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private List<String> readPage() {
+        String table = processEngine.getManagementService().getTableName(ProcessInstance.class);
+        String sql = "SELECT RES.* FROM " + table + " RES WHERE RES.ID_ = RES.PROC_INST_ID_ AND RES.PROC_DEF_ID_ = #{definitionId}"
+            + (lastId == null ? "" : " AND RES.ID_ > #{lastId}")
+            + " ORDER BY RES.ID_ ASC";
+        NativeProcessInstanceQuery query = processEngine.getRuntimeService().createNativeProcessInstanceQuery()
+            .sql(sql)
+            .parameter("definitionId", definitionId);
+        if (lastId != null) {
+            query.parameter("lastId", lastId);
+        }
+        return query.listPage(0, pageSize).stream()
+            .map(ProcessInstance::getId)
+            .collect(toList());
+    }
+}
@@ -17,78 +17,79 @@ package com.atomazing.alba.camunda7.migration.impl;
 
 import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
 import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
-import org.apache.commons.lang3.StringUtils;
 import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.batch.Batch;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
-import org.camunda.bpm.engine.repository.ProcessDefinitionQuery;
-import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
 import java.util.List;
-import java.util.Objects;
 
 import static java.util.Collections.singletonList;
 
 class ProcessMigrator {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProcessMigrator.class);
 
-    public void applyMigrations(ProcessInstance process, List<CamundaMigration> migrations, ProcessEngine processEngine) {
-        LOGGER.info("Migrating process #{} of {}", process.getId(), process.getProcessDefinitionId());
-        ProcessDefinition sourceDefinition = getDefinitionById(processEngine, process.getProcessDefinitionId());
-        String definitionKey = sourceDefinition.getKey();
-        while (true) {
-            CamundaMigration migration = findMigrationBySource(migrations, getVersionTag(sourceDefinition));
-            if (migration == null) {
-                break;
-            }
-            ProcessDefinition targetDefinition = getDefinitionByKeyAndVersionTag(processEngine, definitionKey, migration.target());
-            applyMigration(process, migration, sourceDefinition, targetDefinition, processEngine);
+    /**
+     * Collects batches submitted by {@link CamundaMigration#async() async} migrations, {@code null} if they are not allowed.
+     */
+    private final List<Batch> submittedBatches;
 
-            sourceDefinition = targetDefinition;
-        }
+    private final MigrationMetrics metrics;
+
+    public ProcessMigrator() {
+        this(null);
     }
 
-    // ===================================================================================================================
-    // = Implementation
-    // ===================================================================================================================
+    public ProcessMigrator(List<Batch> submittedBatches) {
+        this(submittedBatches, MigrationMetrics.NONE);
+    }
 
-    private String getVersionTag(ProcessDefinition definition) {
-        return StringUtils.trimToNull(definition.getVersionTag());
+    public ProcessMigrator(List<Batch> submittedBatches, MigrationMetrics metrics) {
+        this.submittedBatches = submittedBatches;
+        this.metrics = metrics;
     }
 
-    private ProcessDefinition getDefinitionById(ProcessEngine processEngine, String definitionId) {
-        return processEngine.getRepositoryService().getProcessDefinition(definitionId);
+    public void applyMigration(String processId, ProcessDefinition source, MigrationChain.Step step, ProcessEngine processEngine) {
+        LOGGER.info("Migrating process #{} of {}", processId, source.getId());
+        applyMigration(singletonList(processId), source, step, processEngine);
     }
 
-    private ProcessDefinition getDefinitionByKeyAndVersionTag(ProcessEngine processEngine, String key, String versionTag) {
-        ProcessDefinitionQuery query = processEngine.getRepositoryService().createProcessDefinitionQuery();
-        if (versionTag == null) {
-            query.withoutVersionTag();
-        } else {
-            query.versionTag(versionTag);
-        }
-        return query
-            .processDefinitionKey(key)
-            .orderByProcessDefinitionVersion().desc()
-            .list()
-            .get(0);
+    public void applyMigration(ProcessDefinition source, List<String> processIds, MigrationChain.Step step, ProcessEngine processEngine) {
+        LOGGER.info("Migrating {} processes of {}", processIds.size(), source.getId());
+        applyMigration(processIds, source, step, processEngine);
     }
 
-    private CamundaMigration findMigrationBySource(List<CamundaMigration> migrations, String versionTag) {
-        return migrations.stream()
-            .filter(migration -> Objects.equals(migration.source(), versionTag))
-            .findAny()
-            .orElse(null);
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private void applyMigration(List<String> processIds, ProcessDefinition source, MigrationChain.Step step, ProcessEngine processEngine) {
+        CamundaMigration migration = step.getMigration();
+        ProcessDefinition target = step.getTargetDefinition();
+        Assert.state(target != null, () -> "Target definition of " + getDescription(migration) + " is not deployed");
+        LOGGER.debug("Applying {}", getDescription(migration));
+        boolean asyncAllowed = submittedBatches != null && migration.async();
+        CamundaMigrationContext context = new CamundaMigrationContext(processEngine, source, target, processIds, asyncAllowed);
+        try {
+            migration.migrate(context);
+        } catch (RuntimeException e) {
+            metrics.countProcesses(migration.key(), migration.source(), migration.target(), processIds.size(), true);
+            throw e;
+        }
+        if (context.getBatches().isEmpty()) {
+            metrics.countProcesses(migration.key(), migration.source(), migration.target(), processIds.size(), false);
+        } else {
+            Assert.state(submittedBatches != null,
+                () -> getDescription(migration) + " submitted batches while async migration is not allowed");
+            LOGGER.debug("Submitted {} batches", context.getBatches().size());
+            submittedBatches.addAll(context.getBatches());
+            metrics.countSubmittedProcesses(migration.key(), migration.source(), migration.target(), processIds.size());
+        }
     }
 
     private String getDescription(CamundaMigration migration) {
         return migration.key() + " " + migration.source() + " -> " + migration.target();
     }
-
-    private void applyMigration(ProcessInstance process, CamundaMigration migration, ProcessDefinition source, ProcessDefinition target,
-        ProcessEngine processEngine) {
-        LOGGER.debug("Applying {}", getDescription(migration));
-        migration.migrate(new CamundaMigrationContext(processEngine, source, target, singletonList(process.getId())));
-    }
 }
@@ -16,64 +16,218 @@
 package com.atomazing.alba.camunda7.migration.impl;
 
 import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import lombok.AccessLevel;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.batch.Batch;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
-import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Setter
-class SyncMigrationStrategy {
+class SyncMigrationStrategy implements MigrationStrategy {
     private static final Logger LOGGER = LoggerFactory.getLogger(SyncMigrationStrategy.class);
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    public static final long DEFAULT_BATCH_TIMEOUT_SECONDS = 3600;
+    private static final long BATCH_POLL_INTERVAL_MILLIS = 1000;
 
-    public void migrate(String key, List<CamundaMigration> migrations, ProcessEngine processEngine) {
-        List<ProcessInstance> processes = getMigratingProcesses(key, migrations, processEngine);
-        LOGGER.info("For {} migrating {} processes", key, processes.size());
-        if (processes.isEmpty()) {
+    /**
+     * Maximum number of process ids read from the database at once.
+     */
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Whether every page is read and migrated in its own transaction holding the deployment lock, instead of the caller's transaction.
+     */
+    private boolean transactionPerPage;
+
+    /**
+     * Checkpoints saved after every page when {@link #transactionPerPage} is set.
+     */
+    private MigrationCheckpoints checkpoints = new MigrationCheckpoints();
+
+    /**
+     * Whether {@link CamundaMigration#async() async} migrations may submit Camunda batches. Processes handed over to a batch move on
+     * with the next hop once all batches of the current hop are completed.
+     */
+    private boolean asyncBatchesAllowed;
+
+    private long batchTimeoutSeconds = DEFAULT_BATCH_TIMEOUT_SECONDS;
+
+    private MigrationProgress progress = new MigrationProgress();
+
+    private ProcessDefinitionCache definitionCache;
+
+    private MigrationMetrics metrics = MigrationMetrics.NONE;
+
+    /**
+     * Batches submitted during the current hop.
+     */
+    @Setter(AccessLevel.NONE)
+    private List<Batch> submittedBatches = new ArrayList<>();
+
+    /**
+     * Processes migrated by earlier hops by target version tag, kept only for targets that are sources of later hops and dropped once
+     * that hop has read them. Only used without {@link #transactionPerPage}, as uncommitted migrations are not visible to queries of
+     * later hops.
+     */
+    @Setter(AccessLevel.NONE)
+    private Map<String, List<String>> carriedProcessIds = new HashMap<>();
+
+    /**
+     * Walks the chain once: every hop migrates the whole cohort of processes on its source version tag, including processes brought
+     * there by earlier hops, before the next hop starts.
+     */
+    @Override
+    public void migrate(MigrationChain unresolvedChain, ProcessEngine processEngine) {
+        if (unresolvedChain.isEmpty()) {
+            LOGGER.info("For {} migrating 0 processes", unresolvedChain.getName());
             return;
         }
-        migrateProcesses(processes, migrations, processEngine);
+        MigrationChain chain = unresolvedChain.resolve(definitionCache);
+        carriedProcessIds = new HashMap<>();
+        for (String versionTag : chain.getSourceVersionTags()) {
+            MigrationChain.Step step = chain.getStep(versionTag);
+            long startedAt = System.nanoTime();
+            migrateCohort(chain, versionTag, step, processEngine);
+            metrics.recordStep(chain.getKey(), versionTag, step.getMigration().target(), System.nanoTime() - startedAt);
+        }
+        if (transactionPerPage) {
+            checkpoints.clear(processEngine, chain.getName());
+        }
     }
 
     // ===================================================================================================================
     // = Implementation
     // ===================================================================================================================
 
+    private void migrateCohort(MigrationChain chain, String versionTag, MigrationChain.Step step, ProcessEngine processEngine) {
+        String name = chain.getName();
+        List<ProcessDefinition> sources = definitionCache.getByKey(chain.getKey(), chain.getTenantId()).stream()
+            .filter(definition -> Objects.equals(getVersionTag(definition), versionTag))
+            .sorted(Comparator.comparing(ProcessDefinition::getVersion))
+            .collect(Collectors.toList());
+        List<String> carried = Optional.ofNullable(carriedProcessIds.remove(versionTag)).orElse(Collections.emptyList());
+        long count = carried.size() + sources.stream()
+            .mapToLong(source -> countProcesses(source, processEngine))
+            .sum();
+        LOGGER.info("For {} migrating {} processes from {} to {}", name, count, versionTag, step.getMigration().target());
+        progress.addTotalProcesses(count);
+        if (count == 0) {
+            return;
+        }
+        submittedBatches = new ArrayList<>();
+        if (!carried.isEmpty()) {
+            ProcessDefinition carriedSource = definitionCache.getByKeyAndVersionTag(chain.getKey(), chain.getTenantId(), versionTag);
+            migrateProcesses(chain, carriedSource, step, partition(carried), processEngine);
+        }
+        sources.forEach(source -> migrateProcesses(chain, source, step, createPages(name, source, processEngine), processEngine));
+        awaitBatches(name, submittedBatches, processEngine);
+    }
+
     private String getVersionTag(ProcessDefinition definition) {
         return StringUtils.trimToNull(definition.getVersionTag());
     }
 
-    private ProcessDefinition getDefinitionById(ProcessEngine processEngine, String definitionId) {
-        return processEngine.getRepositoryService().getProcessDefinition(definitionId);
+    private long countProcesses(ProcessDefinition source, ProcessEngine processEngine) {
+        return processEngine.getRuntimeService().createProcessInstanceQuery()
+            .processDefinitionId(source.getId())
+            .count();
     }
 
-    private boolean isMigrationSource(ProcessInstance process, List<CamundaMigration> migrations, ProcessEngine processEngine) {
-        ProcessDefinition definition = getDefinitionById(processEngine, process.getProcessDefinitionId());
-        String versionTag = getVersionTag(definition);
-        return migrations.stream()
-            .map(CamundaMigration::source)
-            .anyMatch(source -> Objects.equals(source, versionTag));
+    private Iterator<List<String>> createPages(String name, ProcessDefinition source, ProcessEngine processEngine) {
+        String lastProcessId = transactionPerPage ? checkpoints.findLastProcessId(processEngine, name, source.getId()) : null;
+        if (lastProcessId != null) {
+            LOGGER.info("For {} resuming migration of {} after process #{}", name, source.getId(), lastProcessId);
+        }
+        return new ProcessInstanceIdIterator(processEngine, source.getId(), pageSize, lastProcessId);
     }
 
-    private List<ProcessInstance> getMigratingProcesses(String key, List<CamundaMigration> migrations, ProcessEngine processEngine) {
-        if (migrations.isEmpty()) {
-            return Collections.emptyList();
+    private Iterator<List<String>> partition(List<String> processIds) {
+        List<List<String>> pages = new ArrayList<>();
+        for (int from = 0; from < processIds.size(); from += pageSize) {
+            pages.add(processIds.subList(from, Math.min(from + pageSize, processIds.size())));
         }
-        return processEngine.getRuntimeService().createProcessInstanceQuery()
-            .processDefinitionKey(key)
-            .list().stream()
-            .filter(process -> isMigrationSource(process, migrations, processEngine))
-            .collect(Collectors.toList());
+        return pages.iterator();
+    }
+
+    private void migrateProcesses(MigrationChain chain, ProcessDefinition source, MigrationChain.Step step, Iterator<List<String>> pages,
+        ProcessEngine processEngine) {
+        boolean migrated;
+        do {
+            migrated = inPageTransaction(processEngine, () -> migrateNextPage(chain, source, step, pages, processEngine));
+        } while (migrated);
+    }
+
+    private boolean migrateNextPage(MigrationChain chain, ProcessDefinition source, MigrationChain.Step step,
+        Iterator<List<String>> pages, ProcessEngine processEngine) {
+        if (!pages.hasNext()) {
+            return false;
+        }
+        List<String> processIds = pages.next();
+        migrateProcesses(source, processIds, step, processEngine);
+        if (transactionPerPage) {
+            checkpoints.save(processEngine, chain.getName(), source.getId(), processIds.get(processIds.size() - 1));
+        } else if (chain.getStep(step.getMigration().target()) != null) {
+            carriedProcessIds.computeIfAbsent(step.getMigration().target(), any -> new ArrayList<>()).addAll(processIds);
+        }
+        progress.addMigratedProcesses(processIds.size());
+        return true;
+    }
+
+    private <T> T inPageTransaction(ProcessEngine processEngine, Supplier<T> page) {
+        if (!transactionPerPage) {
+            return page.get();
+        }
+        ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) processEngine.getProcessEngineConfiguration();
+        return configuration.getCommandExecutorTxRequiresNew().execute(new MigrateChunkCmd<>(page, metrics));
+    }
+
+    private void awaitBatches(String name, List<Batch> batches, ProcessEngine processEngine) {
+        if (batches.isEmpty()) {
+            return;
+        }
+        LOGGER.info("For {} waiting for {} migration batches", name, batches.size());
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(batchTimeoutSeconds);
+        for (Batch batch : batches) {
+            while (isRunning(batch, processEngine)) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new ProcessEngineException("Migration batch " + batch.getId() + " of " + name + " didn't complete in "
+                        + batchTimeoutSeconds + " seconds");
+                }
+                sleep(BATCH_POLL_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    private boolean isRunning(Batch batch, ProcessEngine processEngine) {
+        return processEngine.getManagementService().createBatchQuery()
+            .batchId(batch.getId())
+            .count() > 0;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessEngineException("Interrupted while waiting for migration batches", e);
+        }
+    }
+
+    protected ProcessMigrator createProcessMigrator() {
+        return new ProcessMigrator(asyncBatchesAllowed ? submittedBatches : null, metrics);
     }
 
-    private void migrateProcesses(List<ProcessInstance> processes, List<CamundaMigration> migrations, ProcessEngine processEngine) {
-        processes.forEach(process -> new ProcessMigrator().applyMigrations(process, migrations, processEngine));
+    protected void migrateProcesses(ProcessDefinition source, List<String> processIds, MigrationChain.Step step, ProcessEngine processEngine) {
+        processIds.forEach(processId -> createProcessMigrator().applyMigration(processId, source, step, processEngine));
     }
 }
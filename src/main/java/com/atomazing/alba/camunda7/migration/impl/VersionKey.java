@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+/**
+ * Sort key of a version tag ordered like {@link ComparableVersion}. Purely numeric tags of up to four dot separated segments below
+ * {@code 32768}, like {@code 1.2.3} or {@code 01.01.01}, are packed into a {@code long} and compared without allocations. Other tags
+ * fall back to {@link ComparableVersion}.
+ */
+class VersionKey implements Comparable<VersionKey> {
+    private static final int MAX_SEGMENTS = 4;
+    private static final int SEGMENT_BITS = 15;
+    private static final int MAX_SEGMENT_VALUE = (1 << SEGMENT_BITS) - 1;
+    private static final long NOT_PACKED = -1;
+
+    private final String tag;
+    private final long packedValue;
+
+    /**
+     * Parsed version, created on demand for packed tags compared with unpacked ones.
+     */
+    private volatile ComparableVersion version;
+
+    public VersionKey(String tag) {
+        this.tag = tag;
+        this.packedValue = pack(tag);
+        if (!isPacked()) {
+            this.version = new ComparableVersion(tag);
+        }
+    }
+
+    public boolean isPacked() {
+        return packedValue != NOT_PACKED;
+    }
+
+    @Override
+    public int compareTo(VersionKey other) {
+        if (isPacked() && other.isPacked()) {
+            return Long.compare(packedValue, other.packedValue);
+        }
+        return getVersion().compareTo(other.getVersion());
+    }
+
+    @Override
+    public String toString() {
+        return tag;
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    /**
+     * Packs segments most significant first, missing trailing segments count as {@code 0} just like in {@link ComparableVersion}.
+     */
+    private static long pack(String tag) {
+        long packed = 0;
+        int segments = 0;
+        int segment = 0;
+        int digits = 0;
+        for (int i = 0; i <= tag.length(); i++) {
+            char c = i < tag.length() ? tag.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                segment = segment * 10 + (c - '0');
+                digits++;
+                if (segment > MAX_SEGMENT_VALUE) {
+                    return NOT_PACKED;
+                }
+            } else if (c == '.' && digits > 0 && segments < MAX_SEGMENTS) {
+                packed = packed << SEGMENT_BITS | segment;
+                segments++;
+                segment = 0;
+                digits = 0;
+            } else {
+                return NOT_PACKED;
+            }
+        }
+        return packed << SEGMENT_BITS * (MAX_SEGMENTS - segments);
+    }
+
+    private ComparableVersion getVersion() {
+        ComparableVersion parsed = version;
+        if (parsed == null) {
+            parsed = new ComparableVersion(tag);
+            version = parsed;
+        }
+        return parsed;
+    }
+}
@@ -15,8 +15,9 @@
  */
 package com.atomazing.alba.camunda7.migration.impl;
 
+import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
-import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.impl.bpmn.deployer.BpmnDeployer;
 import org.camunda.bpm.engine.impl.core.model.Properties;
 import org.camunda.bpm.engine.impl.persistence.entity.DeploymentEntity;
@@ -24,16 +25,13 @@ import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.ResourceEntity;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.engine.repository.ResourceDefinition;
-import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.util.stream.Collectors.toList;
 
@@ -46,6 +44,25 @@ class VersionTagAwareBpmnDeployer extends BpmnDeployer {
     private final NextVersionCalculator nextVersionCalculator;
     private final ResourceNameParser resourceNameParser;
 
+    /**
+     * Definitions of the running auto-deployment, {@code null} for deployments made through the API.
+     */
+    @Setter
+    private volatile ProcessDefinitionCache definitionCache;
+
+    /**
+     * Whether to warn about active processes on older definitions with the version tag of a deployed definition, counted once per
+     * deployed definition after the deployment persisted all of its definitions.
+     */
+    @Setter
+    private volatile boolean checkOverriddenVersionTag = true;
+
+    /**
+     * Definitions of the keys of every running deployment by deployment id, loaded once when the deployment starts persisting its
+     * definitions and updated with every persisted one.
+     */
+    private final ConcurrentMap<String, ProcessDefinitionCache> definitionCachesByDeploymentId = new ConcurrentHashMap<>();
+
     public VersionTagAwareBpmnDeployer() {
         this.nextVersionCalculator = new NextVersionCalculator();
         this.resourceNameParser = new ResourceNameParser();
@@ -58,34 +75,66 @@ class VersionTagAwareBpmnDeployer extends BpmnDeployer {
         return definitions;
     }
 
+    @Override
+    protected void postProcessDefinitions(DeploymentEntity deployment, List<ProcessDefinitionEntity> definitions, Properties properties) {
+        if (!deployment.isNew()) {
+            // definitions of existing deployments are only loaded into the deployment cache and keep their versions
+            super.postProcessDefinitions(deployment, definitions, properties);
+            return;
+        }
+        ProcessDefinitionCache cache = definitionCache != null ? definitionCache : createDefinitionCache();
+        cache.preload(definitions.stream().map(ProcessDefinitionEntity::getKey).collect(toList()));
+        definitionCachesByDeploymentId.put(deployment.getId(), cache);
+        try {
+            super.postProcessDefinitions(deployment, definitions, properties);
+            if (checkOverriddenVersionTag) {
+                definitions.forEach(definition -> checkOverriddenVersionTag(definition, cache));
+            }
+        } finally {
+            definitionCachesByDeploymentId.remove(deployment.getId());
+        }
+    }
+
     @Override
     protected int getNextVersion(DeploymentEntity deployment, ProcessDefinitionEntity definition, ProcessDefinitionEntity ignore) {
-        List<ProcessDefinition> definitions = getProcessDefinitionsByKey(definition.getKey());
-        return nextVersionCalculator.getNextVersion(definition, definitions);
+        return getDefinitionCache(deployment.getId()).withVersionIndex(definition.getKey(), definition.getTenantId(),
+            index -> nextVersionCalculator.getNextVersion(definition, index));
     }
 
     @Override
     protected void persistDefinition(ProcessDefinitionEntity definition) {
         super.persistDefinition(definition);
-        checkOverridenVersionTag(definition);
+        ProcessDefinitionCache cache = getDefinitionCache(definition.getDeploymentId());
+        cache.put(definition);
     }
 
     // ===================================================================================================================
     // = Implementation
     // ===================================================================================================================
 
-    private RuntimeService getRuntimeService() {
-        return getProcessEngineConfiguration().getRuntimeService();
+    private ProcessEngine getProcessEngine() {
+        return getProcessEngineConfiguration().getProcessEngine();
     }
 
-    private List<ProcessDefinition> getProcessDefinitionsByKey(String key) {
-        List<ProcessDefinition> definitions = new ArrayList<>(getProcessDefinitionManager().findProcessDefinitionsByKey(key));
-        // findProcessDefinitionsByKey не учитывает кэш :(
-        Set<ProcessDefinition> cachedDefinitions = getDbEntityManager().getCachedEntitiesByType(ProcessDefinitionEntity.class)
-            .stream()
-            .filter(definition -> key.equals(definition.getKey()))
-            .collect(Collectors.toSet());
-        definitions.addAll(cachedDefinitions);
+    private ProcessDefinitionCache getDefinitionCache(String deploymentId) {
+        ProcessDefinitionCache cache = definitionCachesByDeploymentId.get(deploymentId);
+        Assert.state(cache != null, () -> "Deployment " + deploymentId + " is not being processed");
+        return cache;
+    }
+
+    private ProcessDefinitionCache createDefinitionCache() {
+        return new ProcessDefinitionCache(
+            key -> getProcessDefinitionsByKeys(Collections.singleton(key)),
+            this::getProcessDefinitionsByKeys);
+    }
+
+    private List<ProcessDefinition> getProcessDefinitionsByKeys(Collection<String> keys) {
+        List<ProcessDefinition> definitions = new ArrayList<>(getProcessDefinitionManager().findProcessDefinitionsByKeyIn(
+            keys.toArray(new String[0])));
+        // findProcessDefinitionsByKeyIn не учитывает кэш :(
+        getDbEntityManager().getCachedEntitiesByType(ProcessDefinitionEntity.class).stream()
+            .filter(definition -> keys.contains(definition.getKey()))
+            .forEach(definitions::add);
         return definitions;
     }
 
@@ -105,26 +154,26 @@ class VersionTagAwareBpmnDeployer extends BpmnDeployer {
         return resourceNameParser.parseVersion(resource.getName());
     }
 
-    private List<String> findOverridenVersionTagDefinitionIds(ProcessDefinitionEntity definition) {
-        return getProcessDefinitionsByKey(definition.getKey()).stream()
+    private List<String> findOverriddenVersionTagDefinitionIds(ProcessDefinitionEntity definition, ProcessDefinitionCache cache) {
+        return cache.getByKey(definition.getKey(), definition.getTenantId()).stream()
             .filter(other -> Objects.equals(getVersionTag(other), getVersionTag(definition)))
             .map(ResourceDefinition::getId)
             .filter(id -> !Objects.equals(id, definition.getId()))
             .collect(toList());
     }
 
-    private void checkOverridenVersionTag(ProcessDefinitionEntity definition) {
-        List<String> overridenDefinitionIds = findOverridenVersionTagDefinitionIds(definition);
-        List<ProcessInstance> processes = getRuntimeService().createProcessInstanceQuery()
-            .processDefinitionKey(definition.getKey())
-            .list().stream()
-            .filter(process -> overridenDefinitionIds.contains(process.getProcessDefinitionId()))
-            .collect(toList());
-        if (!processes.isEmpty()) {
-            LOGGER.warn(FOUND_OVERRIDEN_VERSION_TAG_PROCESSES, definition.getId(), definition.getVersionTag(), processes.size());
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("{}", processes.stream().map(process -> process.getId() + "@" + process.getProcessDefinitionId()).collect(toList()));
-            }
+    /**
+     * Warns about running instances of definitions the new definition overrides. Runs for new deployments only, so engines loading the
+     * deployment into their deployment cache later don't warn again.
+     */
+    private void checkOverriddenVersionTag(ProcessDefinitionEntity definition, ProcessDefinitionCache cache) {
+        List<String> overriddenDefinitionIds = findOverriddenVersionTagDefinitionIds(definition, cache);
+        if (overriddenDefinitionIds.isEmpty()) {
+            return;
+        }
+        long count = ProcessInstanceCounter.countByDefinitionIds(getProcessEngine(), overriddenDefinitionIds);
+        if (count > 0) {
+            LOGGER.warn(FOUND_OVERRIDEN_VERSION_TAG_PROCESSES, definition.getId(), definition.getVersionTag(), count);
         }
     }
 }
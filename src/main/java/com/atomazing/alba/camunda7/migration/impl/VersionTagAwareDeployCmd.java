@@ -15,6 +15,8 @@
  */
 package com.atomazing.alba.camunda7.migration.impl;
 
+import lombok.AccessLevel;
+import lombok.Setter;
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.ProcessEngineException;
 import org.camunda.bpm.engine.RepositoryService;
@@ -25,44 +27,73 @@ import org.camunda.bpm.engine.repository.DeploymentWithDefinitions;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.ContextResource;
-import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
 
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipInputStream;
 
+import static org.camunda.bpm.engine.repository.ProcessApplicationDeployment.PROCESS_APPLICATION_DEPLOYMENT_SOURCE;
+
+/**
+ * Deploys resources grouped by version tag in ascending order to every tenant. Resources are read beforehand with
+ * {@link DeploymentResource#load}, so the deployment lock only covers database work.
+ */
 class VersionTagAwareDeployCmd implements Command<Void> {
     private static final Logger LOGGER = LoggerFactory.getLogger(VersionTagAwareDeployCmd.class);
 
+    /**
+     * Keeps the number of statement parameters below the limits of all supported databases.
+     */
+    private static final int MAX_NAMES_PER_QUERY = 500;
+
     private final String deploymentName;
-    private final Resource[] deploymentResources;
-    private final String deploymentTenantId;
+    private final List<DeploymentResource> deploymentResources;
+    /**
+     * Tenants resources are deployed to, {@code null} deploys them without tenant.
+     */
+    private final List<String> deploymentTenantIds;
     private final boolean deployChangedOnly;
     private final ProcessEngine processEngine;
+    private final MigrationMetrics metrics;
+    @Setter(AccessLevel.PACKAGE)
+    private int maxNamesPerQuery = MAX_NAMES_PER_QUERY;
 
-    private final ResourceNameParser resourceNameParser;
+    public VersionTagAwareDeployCmd(String deploymentName, List<DeploymentResource> deploymentResources, String deploymentTenantId,
+        boolean deployChangedOnly, ProcessEngine processEngine) {
+        this(deploymentName, deploymentResources, deploymentTenantId, deployChangedOnly, processEngine, MigrationMetrics.NONE);
+    }
+
+    public VersionTagAwareDeployCmd(String deploymentName, List<DeploymentResource> deploymentResources, String deploymentTenantId,
+        boolean deployChangedOnly, ProcessEngine processEngine, MigrationMetrics metrics) {
+        this(deploymentName, deploymentResources, Collections.singletonList(deploymentTenantId), deployChangedOnly, processEngine, metrics);
+    }
 
-    public VersionTagAwareDeployCmd(String deploymentName, Resource[] deploymentResources, String deploymentTenantId, boolean deployChangedOnly,
-        ProcessEngine processEngine) {
+    public VersionTagAwareDeployCmd(String deploymentName, List<DeploymentResource> deploymentResources, List<String> deploymentTenantIds,
+        boolean deployChangedOnly, ProcessEngine processEngine, MigrationMetrics metrics) {
+        Assert.notEmpty(deploymentTenantIds, "No deployment tenants");
         this.deploymentName = deploymentName;
         this.deploymentResources = deploymentResources;
-        this.deploymentTenantId = deploymentTenantId;
+        this.deploymentTenantIds = deploymentTenantIds;
         this.deployChangedOnly = deployChangedOnly;
         this.processEngine = processEngine;
-
-        this.resourceNameParser = new ResourceNameParser();
+        this.metrics = metrics;
     }
 
     @Override
     public Void execute(CommandContext commandContext) {
-        LOGGER.info("Found {} resources", deploymentResources.length);
+        LOGGER.info("Found {} resources", deploymentResources.size());
+        Map<String, List<DeploymentResource>> groups = groupResources();
         acquireExclusiveLock(commandContext);
-        deploy();
+        for (String tenantId : deploymentTenantIds) {
+            deploy(deployChangedOnly ? removeUnchangedGroups(commandContext, groups, tenantId) : groups, tenantId);
+        }
         return null;
     }
 
@@ -70,15 +101,20 @@ class VersionTagAwareDeployCmd implements Command<Void> {
         if (commandContext.getProcessEngineConfiguration().isDeploymentLockUsed()) {
             commandContext.getPropertyManager().acquireExclusiveLock();
             LOGGER.debug("Acquired exclusive db lock");
+            LockHoldTimer.start(commandContext, metrics, "deploy");
         }
     }
 
-    private List<ProcessDefinition> deploy() {
-        List<ProcessDefinition> definitions = groupResources().stream()
-            .map(this::deployGroup)
+    private List<ProcessDefinition> deploy(Map<String, List<DeploymentResource>> groups, String tenantId) {
+        List<ProcessDefinition> definitions = groups.entrySet().stream()
+            .map(group -> deployGroup(group.getKey(), group.getValue(), tenantId))
             .flatMap(this::deployedProcessDefinitionsStream)
             .collect(Collectors.toList());
-        LOGGER.info("Deployed {} definitions", definitions.size());
+        if (tenantId == null) {
+            LOGGER.info("Deployed {} definitions", definitions.size());
+        } else {
+            LOGGER.info("Deployed {} definitions to tenant {}", definitions.size(), tenantId);
+        }
         LOGGER.debug("{}", definitions.stream().map(this::getDescription).collect(Collectors.toList()));
         return definitions;
     }
@@ -93,54 +129,111 @@ class VersionTagAwareDeployCmd implements Command<Void> {
         return definition.getId() + "#" + definition.getVersionTag();
     }
 
-    private List<List<Resource>> groupResources() {
-        Map<String, List<Resource>> groups = new TreeMap<>(new DefaultVersionTagComparator());
-        for (Resource resource : deploymentResources) {
-            String version = resourceNameParser.parseVersion(getResourceName(resource));
-            groups.computeIfAbsent(version, any -> new ArrayList<>()).add(resource);
+    private Map<String, List<DeploymentResource>> groupResources() {
+        Map<String, List<DeploymentResource>> groups = new TreeMap<>(new DefaultVersionTagComparator());
+        for (DeploymentResource resource : deploymentResources) {
+            groups.computeIfAbsent(resource.getVersionTag(), any -> new ArrayList<>()).add(resource);
         }
         LOGGER.debug("Grouped resources into versions: {}", groups.keySet());
-        return new ArrayList<>(groups.values());
+        return groups;
+    }
+
+    /**
+     * Compares content hashes with the latest resources of the deployment name in the tenant and removes unchanged resources, so that
+     * they and version groups without changed resources never reach the deployer. Archives are always deployed, their content is
+     * compared by Camunda duplicate filtering.
+     */
+    private Map<String, List<DeploymentResource>> removeUnchangedGroups(CommandContext commandContext,
+        Map<String, List<DeploymentResource>> groups, String tenantId) {
+        List<String> names = deploymentResources.stream()
+            .filter(resource -> !resource.isArchive())
+            .map(DeploymentResource::getName)
+            .distinct()
+            .collect(Collectors.toList());
+        if (names.isEmpty()) {
+            return groups;
+        }
+        Map<String, String> latestHashes = new HashMap<>();
+        for (int from = 0; from < names.size(); from += maxNamesPerQuery) {
+            latestHashes.putAll(findLatestHashes(commandContext, names.subList(from, Math.min(from + maxNamesPerQuery, names.size())),
+                tenantId));
+        }
+        Map<String, List<DeploymentResource>> changed = new LinkedHashMap<>();
+        groups.forEach((version, resources) -> {
+            List<DeploymentResource> changedResources = resources.stream()
+                .filter(resource -> resource.isArchive() || !resource.getContentHash().equals(latestHashes.get(resource.getName())))
+                .collect(Collectors.toList());
+            if (!changedResources.isEmpty()) {
+                changed.put(version, changedResources);
+            }
+        });
+        LOGGER.info("Skipped {} unchanged of {} versions", groups.size() - changed.size(), groups.size());
+        return changed;
     }
 
-    private String getFileResourceName(Resource resource) {
-        return resource.getFilename();
+    /**
+     * Returns content hashes of the latest resources with the names by name. Unlike
+     * {@code ResourceManager#findLatestResourcesByDeploymentName}, which looks for the latest deployment time across all tenants, the
+     * deployment time is taken from deployments of the tenant only, so deployments of other tenants with the same name don't hide them.
+     */
+    private Map<String, String> findLatestHashes(CommandContext commandContext, List<String> names, String tenantId) {
+        String prefix = commandContext.getProcessEngineConfiguration().getDatabaseTablePrefix();
+        // like Camunda duplicate filtering, a deployment without source matches deployments without source or from process applications
+        String deploymentCondition = "D.NAME_ = ? AND (D.SOURCE_ IS NULL OR D.SOURCE_ = ?) AND "
+            + (tenantId == null ? "D.TENANT_ID_ IS NULL" : "D.TENANT_ID_ = ?");
+        String resources = prefix + "ACT_GE_BYTEARRAY B INNER JOIN " + prefix + "ACT_RE_DEPLOYMENT D ON B.DEPLOYMENT_ID_ = D.ID_";
+        String sql = "SELECT B.NAME_, B.BYTES_ FROM " + resources
+            + " INNER JOIN (SELECT B.NAME_, MAX(D.DEPLOY_TIME_) DEPLOY_TIME_ FROM " + resources
+            + " WHERE " + deploymentCondition + " AND B.NAME_ IN (" + String.join(", ", Collections.nCopies(names.size(), "?"))
+            + ") GROUP BY B.NAME_) LAST_RESOURCE ON B.NAME_ = LAST_RESOURCE.NAME_ AND D.DEPLOY_TIME_ = LAST_RESOURCE.DEPLOY_TIME_"
+            + " WHERE " + deploymentCondition + " ORDER BY B.ID_";
+        Connection connection = commandContext.getDbSqlSession().getSqlSession().getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = setDeploymentParameters(statement, 1, tenantId);
+            for (String name : names) {
+                statement.setString(parameter++, name);
+            }
+            setDeploymentParameters(statement, parameter, tenantId);
+            Map<String, String> hashes = new HashMap<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    hashes.put(resultSet.getString(1), DeploymentResource.hash(resultSet.getBytes(2)));
+                }
+            }
+            return hashes;
+        } catch (SQLException e) {
+            throw new ProcessEngineException("Failed to read latest resources of deployment " + deploymentName, e);
+        }
     }
 
-    private String getResourceName(Resource resource) {
-        if (resource instanceof ContextResource) {
-            return ((ContextResource) resource).getPathWithinContext();
-        } else if (resource instanceof ByteArrayResource) {
-            return resource.getDescription();
-        } else {
-            return getFileResourceName(resource);
+    private int setDeploymentParameters(PreparedStatement statement, int parameter, String tenantId) throws SQLException {
+        statement.setString(parameter++, deploymentName);
+        statement.setString(parameter++, PROCESS_APPLICATION_DEPLOYMENT_SOURCE);
+        if (tenantId != null) {
+            statement.setString(parameter++, tenantId);
         }
+        return parameter;
     }
 
-    private void addResourceToDeployment(DeploymentBuilder deploymentBuilder, Resource resource) {
-        String resourceName = getResourceName(resource);
-        Assert.notNull(resourceName, "No name for " + resource);
-        try {
-            if (resourceName.endsWith(".bar")
-                || resourceName.endsWith(".zip")
-                || resourceName.endsWith(".jar")) {
-                deploymentBuilder.addZipInputStream(new ZipInputStream(resource.getInputStream()));
-            } else {
-                deploymentBuilder.addInputStream(resourceName, resource.getInputStream());
-            }
-        } catch (IOException e) {
-            throw new ProcessEngineException("couldn't auto deploy resource '" + resource + "': " + e.getMessage(), e);
+    private void addResourceToDeployment(DeploymentBuilder deploymentBuilder, DeploymentResource resource) {
+        if (resource.isArchive()) {
+            deploymentBuilder.addZipInputStream(new ZipInputStream(new ByteArrayInputStream(resource.getContent())));
+        } else {
+            deploymentBuilder.addInputStream(resource.getName(), new ByteArrayInputStream(resource.getContent()));
         }
     }
 
-    private DeploymentWithDefinitions deployGroup(List<Resource> resourceGroup) {
+    private DeploymentWithDefinitions deployGroup(String version, List<DeploymentResource> resourceGroup, String tenantId) {
+        long startedAt = System.nanoTime();
         RepositoryService repositoryService = processEngine.getRepositoryService();
         DeploymentBuilder deploymentBuilder = repositoryService
             .createDeployment()
             .enableDuplicateFiltering(deployChangedOnly)
             .name(deploymentName)
-            .tenantId(deploymentTenantId);
+            .tenantId(tenantId);
         resourceGroup.forEach(resource -> addResourceToDeployment(deploymentBuilder, resource));
-        return deploymentBuilder.deployWithResult();
+        DeploymentWithDefinitions deployment = deploymentBuilder.deployWithResult();
+        metrics.recordDeployment(version, System.nanoTime() - startedAt);
+        return deployment;
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration;
+
+import com.atomazing.alba.camunda7.migration.impl.MicrometerMigrationMetrics;
+import com.atomazing.alba.camunda7.migration.impl.MigrationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CamundaMigrationConfigTest {
+    @Test
+    void metrics() {
+        StaticListableBeanFactory beanFactory =
+            new StaticListableBeanFactory(Collections.singletonMap("meterRegistry", new SimpleMeterRegistry()));
+        MigrationMetrics metrics = new CamundaMigrationConfig.MetricsConfig()
+            .camundaMigrationMetrics(beanFactory.getBeanProvider(MeterRegistry.class));
+        assertInstanceOf(MicrometerMigrationMetrics.class, metrics);
+    }
+
+    @Test
+    void metrics_noRegistry() {
+        MigrationMetrics metrics = new CamundaMigrationConfig.MetricsConfig()
+            .camundaMigrationMetrics(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        assertSame(MigrationMetrics.NONE, metrics);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchMigrationStrategyTest {
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void migrateInBatchesPerSourceDefinition() {
+        deployVersions(processEngine, "p", null, "1.0");
+        ProcessDefinition first = getDefinition(processEngine, "p", null, "1.0");
+        List<String> firstIds = startProcesses(processEngine, first, 4);
+        deploy(processEngine, null, createResource("p", "1.0", "changed"));
+        ProcessDefinition second = getDefinition(processEngine, "p", null, "1.0");
+        List<String> secondIds = startProcesses(processEngine, second, 3);
+        deployVersions(processEngine, "p", null, "1.1");
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(Collections.singletonList(migration));
+        migrationAutoStarter.setBatchSize(2);
+        migrationAutoStarter.setPageSize(3);
+
+        migrate(processEngine, migrationAutoStarter);
+
+        assertEquals(Arrays.asList(
+            firstIds.subList(0, 2), firstIds.subList(2, 3), firstIds.subList(3, 4),
+            secondIds.subList(0, 2), secondIds.subList(2, 3)
+        ), migration.getCalls());
+        assertEquals(Arrays.asList(first.getId(), first.getId(), first.getId(), second.getId(), second.getId()),
+            migration.getSourceDefinitionIds());
+        assertEquals(Collections.nCopies(4, "1.1"), getVersionTags(processEngine, firstIds));
+        assertEquals(Collections.nCopies(3, "1.1"), getVersionTags(processEngine, secondIds));
+    }
+}
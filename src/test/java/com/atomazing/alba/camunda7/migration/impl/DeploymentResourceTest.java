@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeploymentResourceTest {
+    @Test
+    void hash() {
+        assertEquals(DeploymentResource.hash(bytes("a")), DeploymentResource.hash(bytes("a")));
+        assertNotEquals(DeploymentResource.hash(bytes("a")), DeploymentResource.hash(bytes("b")));
+        assertEquals("ca978112ca1bbdcafac231b39a23dc4da786eff8147c4e72b9807785afee48bb", DeploymentResource.hash(bytes("a")));
+    }
+
+    @Test
+    void load() {
+        Resource[] resources = {
+            resource("process-a-1.0.bpmn", "a"),
+            resource("process-b.bpmn", "b"),
+            resource("process-c-2.0.bpmn", "a"),
+            resource("process-d-3.0.bpmn", "d"),
+        };
+        List<DeploymentResource> loaded = DeploymentResource.load(resources, 3);
+
+        assertEquals(Arrays.asList("process-a-1.0.bpmn", "process-b.bpmn", "process-c-2.0.bpmn", "process-d-3.0.bpmn"),
+            loaded.stream().map(DeploymentResource::getName).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("1.0", null, "2.0", "3.0"),
+            loaded.stream().map(DeploymentResource::getVersionTag).collect(Collectors.toList()));
+        assertArrayEquals(bytes("b"), loaded.get(1).getContent());
+        assertEquals(loaded.get(0).getContentHash(), loaded.get(2).getContentHash());
+        assertNotEquals(loaded.get(0).getContentHash(), loaded.get(1).getContentHash());
+    }
+
+    @Test
+    void load_failure() {
+        Resource broken = new ByteArrayResource(bytes("broken")) {
+            @Override
+            public String getDescription() {
+                return "process-broken-1.0.bpmn";
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("Unreadable");
+            }
+        };
+        Resource[] resources = {resource("process-a-1.0.bpmn", "a"), broken, resource("process-c-1.0.bpmn", "c")};
+
+        ProcessEngineException failure = assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> assertThrows(ProcessEngineException.class, () -> DeploymentResource.load(resources, 2)));
+        assertTrue(failure.getMessage().contains("process-broken-1.0.bpmn"), failure.getMessage());
+        assertTrue(failure.getMessage().contains("Unreadable"), failure.getMessage());
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private static Resource resource(String name, String content) {
+        return new ByteArrayResource(bytes(content)) {
+            @Override
+            public String getDescription() {
+                return name;
+            }
+        };
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MicrometerMigrationMetricsTest {
+    private MeterRegistry meterRegistry;
+    private MicrometerMigrationMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new MicrometerMigrationMetrics(meterRegistry);
+    }
+
+    @Test
+    void recordRun() {
+        metrics.recordRun(TimeUnit.SECONDS.toNanos(2), false);
+        metrics.recordRun(TimeUnit.SECONDS.toNanos(1), true);
+        assertEquals(2, meterRegistry.get("camunda.migration.run").tag("outcome", "migrated").timer().totalTime(TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("camunda.migration.run").tag("outcome", "failed").timer().count());
+    }
+
+    @Test
+    void recordKey() {
+        metrics.recordKey("p", 1000);
+        assertTags("camunda.migration.key", "key=p");
+    }
+
+    @Test
+    void recordStep() {
+        metrics.recordStep("p", null, "1.1", 1000);
+        assertTags("camunda.migration.step", "key=p", "source=none", "target=1.1");
+    }
+
+    @Test
+    void countProcesses() {
+        metrics.countProcesses("p", "1.0", "1.1", 3, false);
+        metrics.countProcesses("p", "1.0", "1.1", 2, false);
+        metrics.countProcesses("p", "1.0", "1.1", 1, true);
+        metrics.countSubmittedProcesses("p", "1.0", "1.1", 4);
+        String name = "camunda.migration.processes";
+        assertEquals(5, meterRegistry.get(name).tags("key", "p", "source", "1.0", "target", "1.1", "outcome", "migrated").counter().count());
+        assertEquals(1, meterRegistry.get(name).tag("outcome", "failed").counter().count());
+        assertEquals(4, meterRegistry.get(name).tag("outcome", "submitted").counter().count());
+    }
+
+    @Test
+    void recordDeployment() {
+        metrics.recordDeployment(null, 1000);
+        assertTags("camunda.migration.deployment", "version=none");
+    }
+
+    @Test
+    void recordLockHold() {
+        metrics.recordLockHold("migrate-page", 1000);
+        assertTags("camunda.migration.lock", "command=migrate-page");
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private void assertTags(String name, String... tags) {
+        List<Meter> meters = new ArrayList<>(meterRegistry.find(name).meters());
+        assertEquals(1, meters.size(), () -> "Meters " + name + ": " + meters);
+        Map<String, String> actual = meters.get(0).getId().getTags().stream()
+            .collect(Collectors.toMap(Tag::getKey, Tag::getValue, (a, b) -> b, TreeMap::new));
+        assertEquals(Arrays.asList(tags), actual.entrySet().stream()
+            .map(tag -> tag.getKey() + "=" + tag.getValue())
+            .collect(Collectors.toList()));
+    }
+}
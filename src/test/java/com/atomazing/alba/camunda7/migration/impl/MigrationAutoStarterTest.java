@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MigrationAutoStarterTest {
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void migrateConcurrently() {
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        deployVersions(processEngine, "q", null, "1.0", "1.1");
+        List<String> pIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 2);
+        List<String> qIds = startProcesses(processEngine, getDefinition(processEngine, "q", null, "1.0"), 2);
+        RecordingMigration failing = new RecordingMigration("q", "1.0", "1.1") {
+            @Override
+            public void migrate(CamundaMigrationContext context) {
+                super.migrate(context);
+                if (getCalls().size() == 2) {
+                    throw new IllegalStateException("q failed");
+                }
+            }
+        };
+        MigrationAutoStarter migrationAutoStarter =
+            new MigrationAutoStarter(Arrays.asList(new RecordingMigration("p", "1.0", "1.1"), failing));
+        migrationAutoStarter.setParallelism(2);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> migrate(processEngine, migrationAutoStarter));
+
+        assertEquals("q failed", failure.getMessage());
+        assertEquals(Arrays.asList("1.1", "1.1"), getVersionTags(processEngine, pIds));
+        assertEquals(Arrays.asList("1.0", "1.0"), getVersionTags(processEngine, qIds));
+        assertEquals(2, failing.getCalls().size());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.atomazing.alba.camunda7.migration.impl.MigrationTestFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigrationChainTest {
+    @ParameterizedTest
+    @CsvSource({
+        "1.0>1.1, 1.0, 1.1",
+        "1.0>1.1 1.1>1.2, 1.1, 1.2",
+        "1.1>1.2 1.0>1.1, 1.0, 1.1",
+        "1.0>1.2 1.1>1.2, 1.1, 1.2",
+        "1.0>1.1, 1.1, ",
+    })
+    void getStep(String migrations, String source, String target) {
+        MigrationChain.Step step = new MigrationChain("p", parseMigrations(migrations)).getStep(source);
+        assertEquals(target, step == null ? null : step.getMigration().target());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "1.0>1.1, 1.0",
+        "1.1>1.2 1.0>1.1, 1.0 1.1",
+        "1.1>1.2 0.9>1.1 1.0>1.1, 0.9 1.0 1.1",
+        "1.2>1.3 1.1>1.2 0.9>1.2 1.0>1.1, 1.0 1.1 0.9 1.2",
+    })
+    void getSourceVersionTags(String migrations, String sources) {
+        assertEquals(sources, String.join(" ", new MigrationChain("p", parseMigrations(migrations)).getSourceVersionTags()));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "1.0>1.1 1.0>1.2",
+        "1.0>1.0",
+        "1.0>1.1 1.1>1.0",
+        "0.9>1.0 1.0>1.1 1.1>1.2 1.2>1.0",
+    })
+    void create_error(String migrations) {
+        List<CamundaMigration> parsed = parseMigrations(migrations);
+        assertThrows(IllegalArgumentException.class, () -> new MigrationChain("p", parsed));
+    }
+
+    @Test
+    void resolve() {
+        List<ProcessDefinition> definitions = Arrays.asList(
+            mockDefinition("1.0", 1000), mockDefinition("1.1", 2000), mockDefinition("1.1", 2001), mockDefinition("1.1", 1999)
+        );
+        MigrationChain chain = new MigrationChain("p", parseMigrations("1.0>1.1 1.1>1.2")).resolve(new ProcessDefinitionCache(key -> definitions));
+        assertEquals(2001, chain.getStep("1.0").getTargetDefinition().getVersion());
+        assertNull(chain.getStep("1.1").getTargetDefinition());
+    }
+
+    @Test
+    void resolve_tenant() {
+        List<ProcessDefinition> definitions = Arrays.asList(
+            mockDefinition(null, "1.1", 2001), mockDefinition("a", "1.1", 2000), mockDefinition("b", "1.0", 1000)
+        );
+        ProcessDefinitionCache cache = new ProcessDefinitionCache(key -> definitions);
+        MigrationChain chain = new MigrationChain("p", parseMigrations("1.0>1.1"));
+        assertEquals("p", chain.getName());
+        assertEquals("p@a", chain.forTenant("a").getName());
+        assertEquals(2001, chain.resolve(cache).getStep("1.0").getTargetDefinition().getVersion());
+        assertEquals(2000, chain.forTenant("a").resolve(cache).getStep("1.0").getTargetDefinition().getVersion());
+        assertNull(chain.forTenant("b").resolve(cache).getStep("1.0").getTargetDefinition());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "1.0>1.1 1.1>1.2, 1.1>1.2 1.0>1.1, true",
+        "1.0>1.1 1.1>1.2, 1.0>1.1 1.1>1.3, false",
+        "1.0>1.1 1.1>1.2, 1.0>1.1, false",
+    })
+    void getHash(String migrations, String otherMigrations, boolean equal) {
+        String hash = new MigrationChain("p", parseMigrations(migrations)).getHash();
+        assertEquals(equal, hash.equals(new MigrationChain("p", parseMigrations(otherMigrations)).getHash()));
+    }
+}
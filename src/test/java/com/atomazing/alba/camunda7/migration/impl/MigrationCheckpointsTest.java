@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MigrationCheckpointsTest {
+    private final MigrationCheckpoints checkpoints = new MigrationCheckpoints();
+    private ProcessEngine processEngine;
+    private ProcessDefinition source;
+    private List<String> processIds;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        source = getDefinition(processEngine, "p", null, "1.0");
+        processIds = startProcesses(processEngine, source, 5);
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void failedPage() {
+        RecordingMigration failing = new RecordingMigration("p", "1.0", "1.1") {
+            @Override
+            public void migrate(CamundaMigrationContext context) {
+                super.migrate(context);
+                if (getCalls().size() == 4) {
+                    throw new IllegalStateException("Failed");
+                }
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> migrate(processEngine, createMigrationAutoStarter(failing)));
+
+        assertEquals(Arrays.asList("1.1", "1.1", "1.0", "1.0", "1.0"), getVersionTags(processEngine, processIds));
+        assertEquals(processIds.get(1), checkpoints.findLastProcessId(processEngine, "p", source.getId()));
+
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+        migrate(processEngine, createMigrationAutoStarter(migration));
+
+        assertEquals(processIds.subList(2, 5), migration.getProcessIds());
+        assertEquals(Collections.nCopies(5, "1.1"), getVersionTags(processEngine, processIds));
+        assertNull(checkpoints.findLastProcessId(processEngine, "p", source.getId()));
+    }
+
+    @Test
+    void resumeAfterCheckpoint() {
+        checkpoints.save(processEngine, "p", source.getId(), processIds.get(1));
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+
+        migrate(processEngine, createMigrationAutoStarter(migration));
+
+        assertEquals(processIds.subList(2, 5), migration.getProcessIds());
+        assertEquals(Arrays.asList("1.0", "1.0", "1.1", "1.1", "1.1"), getVersionTags(processEngine, processIds));
+        assertNull(checkpoints.findLastProcessId(processEngine, "p", source.getId()));
+    }
+
+    @Test
+    void ignoreCheckpointOfOtherStep() {
+        checkpoints.save(processEngine, "p", getDefinition(processEngine, "p", null, "1.1").getId(), processIds.get(1));
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+
+        migrate(processEngine, createMigrationAutoStarter(migration));
+
+        assertEquals(processIds, migration.getProcessIds());
+    }
+
+    @Test
+    void clearAfterSuccess() {
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+
+        migrate(processEngine, createMigrationAutoStarter(migration));
+
+        assertEquals(processIds, migration.getProcessIds());
+        assertEquals(Collections.nCopies(5, "1.1"), getVersionTags(processEngine, processIds));
+        assertNull(new MigrationProperties("camunda-migration.checkpoint.").get(processEngine, "p"));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private MigrationAutoStarter createMigrationAutoStarter(RecordingMigration migration) {
+        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(Collections.singletonList(migration));
+        migrationAutoStarter.setTransactionPerPage(true);
+        migrationAutoStarter.setPageSize(2);
+        return migrationAutoStarter;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MigrationFingerprintsTest {
+    private final AtomicInteger migratedKeys = new AtomicInteger();
+    private final MigrationProperties fingerprints = new MigrationProperties("camunda-migration.fingerprint.");
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 2);
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void skipUnchanged() {
+        migrate(new RecordingMigration("p", "1.0", "1.1"));
+        assertNotNull(fingerprints.get(processEngine, "p"));
+        migrate(new RecordingMigration("p", "1.0", "1.1"));
+        assertEquals(1, migratedKeys.get());
+    }
+
+    @Test
+    void migrateNewDeployment() {
+        migrate(new RecordingMigration("p", "1.0", "1.1"));
+        deployVersions(processEngine, "p", null, "1.2");
+        migrate(new RecordingMigration("p", "1.0", "1.1"));
+        assertEquals(2, migratedKeys.get());
+    }
+
+    @Test
+    void migrateChangedMigrations() {
+        deployVersions(processEngine, "p", null, "1.2");
+        migrate(new RecordingMigration("p", "1.0", "1.1"));
+        List<String> processIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.1"), 1);
+        migrate(new RecordingMigration("p", "1.0", "1.1"), new RecordingMigration("p", "1.1", "1.2"));
+        assertEquals(2, migratedKeys.get());
+        assertEquals(Collections.singletonList("1.2"), getVersionTags(processEngine, processIds));
+    }
+
+    @Test
+    void migrateNewSourceProcess() {
+        migrate(new RecordingMigration("p", "1.0", "1.1"));
+        List<String> processIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 1);
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+        migrate(migration);
+        assertEquals(2, migratedKeys.get());
+        assertEquals(processIds, migration.getProcessIds());
+    }
+
+    @Test
+    void keepFingerprintOfFailedRun() {
+        RecordingMigration failing = new RecordingMigration("p", "1.0", "1.1") {
+            @Override
+            public void migrate(CamundaMigrationContext context) {
+                throw new IllegalStateException("Failed");
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> migrate(failing));
+        assertNull(fingerprints.get(processEngine, "p"));
+
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+        migrate(migration);
+        assertEquals(2, migration.getProcessIds().size());
+        assertNotNull(fingerprints.get(processEngine, "p"));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private void migrate(RecordingMigration... migrations) {
+        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(Arrays.asList(migrations));
+        migrationAutoStarter.setMetrics(new MigrationMetrics() {
+            @Override
+            public void recordKey(String key, long durationNanos) {
+                migratedKeys.incrementAndGet();
+            }
+        });
+        TestProcessEngines.migrate(processEngine, migrationAutoStarter);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigrationHealthIndicatorTest {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 1);
+    }
+
+    @AfterEach
+    void closeEngine() {
+        released.countDown();
+        processEngine.close();
+    }
+
+    @Test
+    void completed() throws Exception {
+        MigrationAutoStarter migrationAutoStarter = createMigrationAutoStarter(null);
+        MigrationHealthIndicator healthIndicator = new MigrationHealthIndicator(migrationAutoStarter);
+
+        CompletableFuture<Void> completion = migrationAutoStarter.autoMigrateAsync(processEngine);
+        await(started);
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+        released.countDown();
+        completion.get(30, TimeUnit.SECONDS);
+
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+        assertEquals(1L, healthIndicator.health().getDetails().get("migratedProcesses"));
+    }
+
+    @Test
+    void failedWithError() {
+        NoClassDefFoundError error = new NoClassDefFoundError("test");
+        MigrationAutoStarter migrationAutoStarter = createMigrationAutoStarter(error);
+        MigrationHealthIndicator healthIndicator = new MigrationHealthIndicator(migrationAutoStarter);
+
+        CompletableFuture<Void> completion = migrationAutoStarter.autoMigrateAsync(processEngine);
+        await(started);
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+        released.countDown();
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> completion.get(30, TimeUnit.SECONDS));
+
+        assertInstanceOf(NoClassDefFoundError.class, failure.getCause());
+        assertEquals(Status.DOWN, healthIndicator.health().getStatus());
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    /**
+     * Returns a starter whose migration waits until released and then throws the {@code error}, if any.
+     */
+    private MigrationAutoStarter createMigrationAutoStarter(Error error) {
+        return new MigrationAutoStarter(Collections.singletonList(new RecordingMigration("p", "1.0", "1.1") {
+            @Override
+            public void migrate(CamundaMigrationContext context) {
+                started.countDown();
+                await(released);
+                if (error != null) {
+                    throw error;
+                }
+                super.migrate(context);
+            }
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(30, TimeUnit.SECONDS), "Migration didn't start");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
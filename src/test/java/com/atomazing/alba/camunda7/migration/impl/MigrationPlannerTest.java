@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.atomazing.alba.camunda7.migration.impl.MigrationTestFixtures.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MigrationPlannerTest {
+    @ParameterizedTest
+    @CsvSource({
+        "1.0>1.1, 1.0:1:5 1.1:2:0, 1.0>1.1 5/5 FOUND",
+        "1.0>1.1 1.1>1.2, 1.0:1:5 1.1:2:3 1.2:3:0, 1.0>1.1 5/5 FOUND; 1.1>1.2 3/8 FOUND",
+        "1.1>1.2 1.0>1.1, 1.0:1:5 1.1:2:3, 1.0>1.1 5/5 FOUND; 1.1>1.2 3/8 MISSING",
+        "1.0>1.1, 1.0:1:5 1.0:2:2 1.1:3:0 1.1:4:1, 1.0>1.1 7/7 AMBIGUOUS",
+        "0.9>1.1 1.0>1.1 1.1>1.2, 0.9:1:1 1.0:2:2 1.1:3:0 1.2:4:0, 0.9>1.1 1/1 FOUND; 1.0>1.1 2/2 FOUND; 1.1>1.2 0/3 FOUND",
+    })
+    void plan(String migrations, String definitions, String hops) {
+        Map<ProcessDefinition, Long> counts = parseDefinitions(definitions);
+        ProcessDefinitionCache cache = new ProcessDefinitionCache(key -> new ArrayList<>(counts.keySet()));
+        MigrationPlan.KeyPlan plan = new MigrationPlanner(cache, counts::get).plan(new MigrationChain("p", parseMigrations(migrations)));
+        assertEquals(hops, plan.getHops().stream()
+            .map(hop -> hop.getSource() + ">" + hop.getTarget() + " " + hop.getProcesses() + "/" + hop.getCohort() + " "
+                + hop.getTargetStatus())
+            .collect(Collectors.joining("; ")));
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    /**
+     * Parses {@code versionTag:version:processes} definitions.
+     */
+    private static Map<ProcessDefinition, Long> parseDefinitions(String definitions) {
+        Map<ProcessDefinition, Long> counts = new LinkedHashMap<>();
+        for (String definition : definitions.split(" ")) {
+            String[] parts = definition.split(":");
+            counts.put(mockDefinition(parts[0], Integer.parseInt(parts[1])), Long.parseLong(parts[2]));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MigrationTenantsTest {
+    private static final List<String> TENANT_IDS = Arrays.asList(null, "a", "b");
+
+    private final MigrationCheckpoints checkpoints = new MigrationCheckpoints();
+    private final MigrationProperties fingerprints = new MigrationProperties("camunda-migration.fingerprint.");
+    private final Map<String, List<String>> processIds = new HashMap<>();
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        for (String tenantId : TENANT_IDS) {
+            deployVersions(processEngine, "p", tenantId, "1.0", "1.1");
+            processIds.put(tenantId, startProcesses(processEngine, getDefinition(processEngine, "p", tenantId, "1.0"), 3));
+        }
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void migrateOwnTenant() {
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+
+        migrate(processEngine, new MigrationAutoStarter(Collections.singletonList(migration)));
+
+        assertEquals(TENANT_IDS.stream().map(tenantId -> getDefinition(processEngine, "p", tenantId, "1.0").getId())
+            .collect(Collectors.toSet()), new HashSet<>(migration.getSourceDefinitionIds()));
+        for (String tenantId : TENANT_IDS) {
+            assertEquals(Collections.nCopies(3, getDefinition(processEngine, "p", tenantId, "1.1").getId()),
+                getDefinitionIds(processIds.get(tenantId)));
+        }
+        assertNotNull(fingerprints.get(processEngine, "p"));
+        assertNotNull(fingerprints.get(processEngine, "p@a"));
+        assertNotNull(fingerprints.get(processEngine, "p@b"));
+    }
+
+    @Test
+    void checkpointPerTenant() {
+        String sourceId = getDefinition(processEngine, "p", "a", "1.0").getId();
+        RecordingMigration failing = new RecordingMigration("p", "1.0", "1.1") {
+            @Override
+            public void migrate(CamundaMigrationContext context) {
+                super.migrate(context);
+                if (Collections.frequency(getSourceDefinitionIds(), sourceId) == 3) {
+                    throw new IllegalStateException("Failed");
+                }
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> migrate(processEngine, createMigrationAutoStarter(failing)));
+
+        assertEquals(processIds.get("a").get(1), checkpoints.findLastProcessId(processEngine, "p@a", sourceId));
+        assertNull(checkpoints.findLastProcessId(processEngine, "p", sourceId));
+        assertNull(fingerprints.get(processEngine, "p@a"));
+
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1");
+        migrate(processEngine, createMigrationAutoStarter(migration));
+
+        assertEquals(1, Collections.frequency(migration.getSourceDefinitionIds(), sourceId));
+        assertEquals(processIds.get("a").subList(2, 3), migration.getCalls().get(migration.getSourceDefinitionIds().indexOf(sourceId)));
+        for (String tenantId : TENANT_IDS) {
+            assertEquals(Collections.nCopies(3, getDefinition(processEngine, "p", tenantId, "1.1").getId()),
+                getDefinitionIds(processIds.get(tenantId)));
+        }
+        assertNull(new MigrationProperties("camunda-migration.checkpoint.").get(processEngine, "p@a"));
+        assertNotNull(fingerprints.get(processEngine, "p@a"));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private MigrationAutoStarter createMigrationAutoStarter(RecordingMigration migration) {
+        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(Collections.singletonList(migration));
+        migrationAutoStarter.setTransactionPerPage(true);
+        migrationAutoStarter.setPageSize(2);
+        return migrationAutoStarter;
+    }
+
+    private List<String> getDefinitionIds(List<String> processIds) {
+        Map<String, String> definitionIds = processEngine.getRuntimeService().createProcessInstanceQuery()
+            .processInstanceIds(new HashSet<>(processIds)).list().stream()
+            .collect(Collectors.toMap(ProcessInstance::getId, ProcessInstance::getProcessDefinitionId));
+        return processIds.stream().map(definitionIds::get).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigration;
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Migrations and definitions of the key {@code p} shared by unit tests.
+ */
+final class MigrationTestFixtures {
+    private MigrationTestFixtures() {
+    }
+
+    /**
+     * Parses space separated {@code source>target} migrations.
+     */
+    static List<CamundaMigration> parseMigrations(String migrations) {
+        return Arrays.stream(migrations.split(" "))
+            .map(migration -> migration.split(">"))
+            .map(tags -> new TestMigration(tags[0], tags[1]))
+            .collect(Collectors.toList());
+    }
+
+    static ProcessDefinition mockDefinition(String versionTag, int version) {
+        return mockDefinition(null, versionTag, version);
+    }
+
+    static ProcessDefinition mockDefinition(String tenantId, String versionTag, int version) {
+        ProcessDefinition mock = Mockito.mock(ProcessDefinition.class);
+        Mockito.when(mock.getId()).thenReturn(tenantId == null ? "p:" + version : "p:" + version + ":" + tenantId);
+        Mockito.when(mock.getKey()).thenReturn("p");
+        Mockito.when(mock.getTenantId()).thenReturn(tenantId);
+        Mockito.when(mock.getVersionTag()).thenReturn(versionTag);
+        Mockito.when(mock.getVersion()).thenReturn(version);
+        return mock;
+    }
+
+    private static class TestMigration implements CamundaMigration {
+        private final String source;
+        private final String target;
+
+        TestMigration(String source, String target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public String key() {
+            return "p";
+        }
+
+        @Override
+        public String source() {
+            return source;
+        }
+
+        @Override
+        public String target() {
+            return target;
+        }
+
+        @Override
+        public void migrate(CamundaMigrationContext context) {
+        }
+    }
+}
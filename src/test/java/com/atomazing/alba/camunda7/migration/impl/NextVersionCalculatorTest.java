@@ -28,6 +28,10 @@ import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -50,7 +54,11 @@ class NextVersionCalculatorTest {
         "1.2.4, 1073742324, 1.2.3, 1002, 1.2.5, 2147483647",
     })
     void getNextVersion(String newVersionTag, int nextVersion, @AggregateWith(Aggregator.class) List<ProcessDefinition> definitions) {
-        assertEquals(nextVersion, calculator.getNextVersion(mockDefinition(newVersionTag, 0), definitions));
+        ProcessDefinition newDefinition = mockDefinition(newVersionTag, 0);
+        NavigableSet<ProcessDefinition> index = new TreeSet<>(NextVersionCalculator.VERSION_ORDER);
+        index.addAll(definitions);
+        assertEquals(nextVersion, calculator.getNextVersion(newDefinition, definitions));
+        assertEquals(nextVersion, calculator.getNextVersion(newDefinition, index));
     }
 
     @SuppressWarnings("unused")
@@ -63,12 +71,32 @@ class NextVersionCalculatorTest {
         assertThrows(IllegalArgumentException.class, () -> calculator.getNextVersion(mockDefinition(newVersionTag, 0), definitions));
     }
 
+    @ParameterizedTest
+    @CsvSource({
+        "1.0:1000, 1000",
+        "1.0:1000 1.1:1125 1.1:1126 1.2:1250, 1000 2000 2001 3000",
+        "1.2:1250 1.0:1000 1.1:1125, 3000 1000 2000",
+        ":1 :2 1.0:1000, 1000 1001 2000",
+        "1.0:1000 2.0:2000 3.0:3000, 1000 2000 3000",
+    })
+    void getCompactedVersions(String definitions, String versions) {
+        List<ProcessDefinition> mocks = new ArrayList<>();
+        for (String definition : definitions.split(" ")) {
+            String[] parts = definition.split(":");
+            mocks.add(mockDefinition(parts[0].isEmpty() ? null : parts[0], Integer.parseInt(parts[1])));
+        }
+        Map<String, Integer> compacted = calculator.getCompactedVersions(mocks);
+        assertEquals(versions, mocks.stream().map(mock -> String.valueOf(compacted.get(mock.getId())))
+            .collect(Collectors.joining(" ")));
+    }
+
     // ===================================================================================================================
     // = Implementation
     // ===================================================================================================================
 
     private static ProcessDefinition mockDefinition(String versionTag, int version) {
         ProcessDefinition mock = Mockito.mock(ProcessDefinition.class);
+        Mockito.when(mock.getId()).thenReturn(versionTag + ":" + version);
         Mockito.when(mock.getVersionTag()).thenReturn(versionTag);
         Mockito.when(mock.getVersion()).thenReturn(version);
         return mock;
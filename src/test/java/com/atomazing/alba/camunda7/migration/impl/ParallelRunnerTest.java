@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelRunnerTest {
+    @Test
+    void map() {
+        CountDownLatch started = new CountDownLatch(3);
+        List<Integer> results = new ParallelRunner(3, "test-").map(Arrays.asList(1, 2, 3), item -> {
+            started.countDown();
+            await(started);
+            return item * 10;
+        });
+        assertEquals(Arrays.asList(10, 20, 30), results);
+    }
+
+    @Test
+    void map_failures() {
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        IllegalStateException first = new IllegalStateException("1");
+        IllegalArgumentException third = new IllegalArgumentException("3");
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+            () -> new ParallelRunner(2, "test-").map(Arrays.asList(1, 2, 3, 4), item -> {
+                processed.add(item);
+                if (item == 1) {
+                    throw first;
+                } else if (item == 3) {
+                    throw third;
+                }
+                return item;
+            }));
+        assertSame(first, failure);
+        assertEquals(Collections.singletonList(third), Arrays.asList(failure.getSuppressed()));
+        assertEquals(4, processed.size());
+    }
+
+    @Test
+    void map_error() {
+        assertThrows(AssertionError.class, () -> new ParallelRunner(2, "test-").map(Arrays.asList(1, 2), item -> {
+            throw new AssertionError(item);
+        }));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS), "Items were not processed concurrently");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
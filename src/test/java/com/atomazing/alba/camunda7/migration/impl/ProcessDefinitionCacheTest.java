@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atomazing.alba.camunda7.migration.impl.MigrationTestFixtures.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProcessDefinitionCacheTest {
+    @Test
+    void getByKeyAndVersionTag() {
+        AtomicInteger queries = new AtomicInteger();
+        ProcessDefinitionCache cache = new ProcessDefinitionCache(key -> {
+            queries.incrementAndGet();
+            return "p".equals(key)
+                ? Arrays.asList(mockDefinition("1.0", 1000), mockDefinition("1.1", 2001), mockDefinition("1.1", 2000))
+                : Collections.emptyList();
+        });
+        assertEquals(2001, cache.getByKeyAndVersionTag("p", null, "1.1").getVersion());
+        assertEquals(1000, cache.getByKeyAndVersionTag("p", null, "1.0").getVersion());
+        assertNull(cache.getByKeyAndVersionTag("p", null, "1.2"));
+        assertNull(cache.getByKeyAndVersionTag("q", null, "1.0"));
+        assertEquals(2, queries.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void put() {
+        ProcessDefinitionCache cache = new ProcessDefinitionCache(key -> Collections.singletonList(mockDefinition("1.0", 1000)));
+        cache.put(mockDefinition("1.0", 1001));
+        assertEquals(1, cache.getByKey("p").size());
+        cache.put(mockDefinition("1.0", 1001));
+        cache.put(mockDefinition("1.0", 1001));
+        assertEquals(2, cache.getByKey("p").size());
+        assertEquals(1001, cache.getByKeyAndVersionTag("p", null, "1.0").getVersion());
+    }
+
+    @Test
+    void preload() {
+        AtomicInteger queries = new AtomicInteger();
+        AtomicInteger bulkQueries = new AtomicInteger();
+        ProcessDefinitionCache cache = new ProcessDefinitionCache(
+            key -> {
+                queries.incrementAndGet();
+                return Collections.emptyList();
+            },
+            keys -> {
+                bulkQueries.incrementAndGet();
+                return keys.contains("p") ? Collections.singletonList(mockDefinition("1.0", 1000)) : Collections.emptyList();
+            });
+        cache.preload(Arrays.asList("p", "q"));
+        cache.preload(Arrays.asList("p", "q"));
+        assertEquals(1, cache.getByKey("p").size());
+        assertEquals(0, cache.getByKey("q").size());
+        assertEquals(0, queries.get());
+        assertEquals(1, bulkQueries.get());
+    }
+
+    @Test
+    void tenants() {
+        ProcessDefinitionCache cache = new ProcessDefinitionCache(key -> Arrays.asList(mockDefinition("b", "1.0", 1000),
+            mockDefinition(null, "1.0", 1000), mockDefinition("a", "1.0", 1000), mockDefinition("a", "1.1", 2000)));
+        assertEquals(Arrays.asList(null, "a", "b"), cache.getTenantIds("p"));
+        cache.put(mockDefinition("b", "1.0", 1001));
+        assertEquals(5, cache.getByKey("p").size());
+        assertEquals(2, cache.getByKey("p", "a").size());
+        assertEquals(0, cache.getByKey("p", "c").size());
+        assertEquals(1000, cache.getByKeyAndVersionTag("p", null, "1.0").getVersion());
+        assertEquals(1001, cache.getByKeyAndVersionTag("p", "b", "1.0").getVersion());
+        assertNull(cache.getByKeyAndVersionTag("p", "b", "1.1"));
+        assertEquals(2000, (int) cache.withVersionIndex("p", "a", index -> index.last().getVersion()));
+        assertEquals(0, (int) cache.withVersionIndex("p", "c", Set::size));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.createResource;
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.deploy;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProcessDefinitionVersionCompactorTest {
+    private static final List<Integer> COMPACTED_VERSIONS = Arrays.asList(1000, 5000, 4000, 3000, 2000, 4001);
+
+    private String database;
+    private ProcessEngine processEngine;
+    private RepositoryService repositoryService;
+
+    @BeforeEach
+    void createEngine() {
+        database = UUID.randomUUID().toString();
+        processEngine = TestProcessEngines.create(database);
+        repositoryService = processEngine.getRepositoryService();
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void compact() {
+        deployWithGaps(null);
+        List<ProcessDefinition> cached = getDefinitions(null).stream()
+            .map(definition -> repositoryService.getProcessDefinition(definition.getId()))
+            .collect(toList());
+        assertEquals(5, new ProcessDefinitionVersionCompactor().compact(processEngine, "p"));
+        assertEquals(COMPACTED_VERSIONS, getStoredVersions(null));
+        assertEquals(COMPACTED_VERSIONS, cached.stream()
+            .map(definition -> repositoryService.getProcessDefinition(definition.getId()).getVersion())
+            .collect(toList()));
+        assertEquals(0, new ProcessDefinitionVersionCompactor().compact(processEngine, "p"));
+    }
+
+    @Test
+    void compactInChunks() {
+        deployWithGaps(null);
+        CompactVersionsCmd command = new CompactVersionsCmd(processEngine, "p", null);
+        command.setMaxDefinitionsPerUpdate(2);
+        assertEquals(5, (int) TestProcessEngines.execute(processEngine, command));
+        assertEquals(COMPACTED_VERSIONS, getStoredVersions(null));
+    }
+
+    @Test
+    void compactTenant() {
+        deployWithGaps(null);
+        deployWithGaps("a");
+        List<Integer> versions = getStoredVersions(null);
+        assertEquals(5, new ProcessDefinitionVersionCompactor().compact(processEngine, "p", "a"));
+        assertEquals(COMPACTED_VERSIONS, getStoredVersions("a"));
+        assertEquals(versions, getStoredVersions(null));
+    }
+
+    @Test
+    void compactCalledWithVersionBinding() {
+        deployWithGaps(null);
+        deploy(processEngine, null, createResource("c", "1.0", createCaller("1.0", "version")));
+        List<Integer> versions = getStoredVersions(null);
+        assertThrows(ProcessEngineException.class, () -> new ProcessDefinitionVersionCompactor().compact(processEngine, "p"));
+        assertEquals(versions, getStoredVersions(null));
+    }
+
+    @Test
+    void compactCalledWithVersionBindingByRunningInstance() {
+        deployWithGaps(null);
+        deploy(processEngine, null, createResource("c", "1.0", createCaller("1.0", "version")));
+        processEngine.getRuntimeService().startProcessInstanceByKey("c");
+        deploy(processEngine, null, createResource("c", "1.1", createCaller("1.1", "latest")));
+        assertThrows(ProcessEngineException.class, () -> new ProcessDefinitionVersionCompactor().compact(processEngine, "p"));
+    }
+
+    @Test
+    void compactCalledWithVersionBindingBySupersededDefinition() {
+        deployWithGaps(null);
+        deploy(processEngine, null, createResource("c", "1.0", createCaller("1.0", "version")));
+        deploy(processEngine, null, createResource("c", "1.1", createCaller("1.1", "latest")));
+        assertEquals(5, new ProcessDefinitionVersionCompactor().compact(processEngine, "p"));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    /**
+     * Deploys version tags 1.0, 2.0, 1.5, 1.2, 1.1 and a changed 1.5, so that versions between version tags have gaps.
+     */
+    private void deployWithGaps(String tenantId) {
+        for (String versionTag : Arrays.asList("1.0", "2.0", "1.5", "1.2", "1.1")) {
+            deploy(processEngine, tenantId, createResource("p", versionTag, "a"));
+        }
+        deploy(processEngine, tenantId, createResource("p", "1.5", "b"));
+    }
+
+    private BpmnModelInstance createCaller(String versionTag, String binding) {
+        return Bpmn.createExecutableProcess("c")
+            .camundaVersionTag(versionTag)
+            .startEvent()
+            .callActivity().calledElement("p").camundaCalledElementBinding(binding).camundaCalledElementVersion("1000")
+            .endEvent()
+            .done();
+    }
+
+    /**
+     * Returns definitions of the key p in deployment order.
+     */
+    private List<ProcessDefinition> getDefinitions(String tenantId) {
+        return getStoredIds(tenantId).stream().map(repositoryService::getProcessDefinition).collect(toList());
+    }
+
+    private List<String> getStoredIds(String tenantId) {
+        return new JdbcTemplate(TestProcessEngines.getDataSource(database)).queryForList(
+            "SELECT P.ID_ FROM ACT_RE_PROCDEF P INNER JOIN ACT_RE_DEPLOYMENT D ON P.DEPLOYMENT_ID_ = D.ID_"
+                + " WHERE P.KEY_ = 'p' AND " + (tenantId == null ? "P.TENANT_ID_ IS NULL" : "P.TENANT_ID_ = '" + tenantId + "'")
+                + " ORDER BY CAST(D.ID_ AS BIGINT)", String.class);
+    }
+
+    private List<Integer> getStoredVersions(String tenantId) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(TestProcessEngines.getDataSource(database));
+        return getStoredIds(tenantId).stream()
+            .map(id -> jdbcTemplate.queryForObject("SELECT VERSION_ FROM ACT_RE_PROCDEF WHERE ID_ = ?", Integer.class, id))
+            .collect(toList());
+    }
+}
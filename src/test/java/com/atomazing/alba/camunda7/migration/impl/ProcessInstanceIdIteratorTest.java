@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProcessInstanceIdIteratorTest {
+    private ProcessEngine processEngine;
+    private ProcessDefinition definition;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0");
+        deployVersions(processEngine, "q", null, "1.0");
+        definition = getDefinition(processEngine, "p", null, "1.0");
+        startProcesses(processEngine, getDefinition(processEngine, "q", null, "1.0"), 3);
+    }
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @Test
+    void empty() {
+        Iterator<List<String>> pages = new ProcessInstanceIdIterator(processEngine, definition.getId(), 2);
+        assertFalse(pages.hasNext());
+        assertThrows(NoSuchElementException.class, pages::next);
+    }
+
+    @Test
+    void partialLastPage() {
+        List<String> ids = startProcesses(processEngine, definition, 5);
+        assertEquals(Arrays.asList(ids.subList(0, 2), ids.subList(2, 4), ids.subList(4, 5)),
+            readPages(new ProcessInstanceIdIterator(processEngine, definition.getId(), 2)));
+    }
+
+    @Test
+    void exactMultipleOfPageSize() {
+        List<String> ids = startProcesses(processEngine, definition, 4);
+        Iterator<List<String>> pages = new ProcessInstanceIdIterator(processEngine, definition.getId(), 2);
+        assertEquals(Arrays.asList(ids.subList(0, 2), ids.subList(2, 4)), readPages(pages));
+        assertThrows(NoSuchElementException.class, pages::next);
+    }
+
+    @Test
+    void singlePage() {
+        List<String> ids = startProcesses(processEngine, definition, 2);
+        assertEquals(Collections.singletonList(ids), readPages(new ProcessInstanceIdIterator(processEngine, definition.getId(), 3)));
+    }
+
+    @Test
+    void startAfterId() {
+        List<String> ids = startProcesses(processEngine, definition, 5);
+        assertEquals(Arrays.asList(ids.subList(2, 4), ids.subList(4, 5)),
+            readPages(new ProcessInstanceIdIterator(processEngine, definition.getId(), 2, ids.get(1))));
+        assertEquals(Collections.emptyList(),
+            readPages(new ProcessInstanceIdIterator(processEngine, definition.getId(), 2, ids.get(4))));
+    }
+
+    @Test
+    void processesLeavingDefinition() {
+        List<String> ids = startProcesses(processEngine, definition, 5);
+        Iterator<List<String>> pages = new ProcessInstanceIdIterator(processEngine, definition.getId(), 2);
+        assertEquals(ids.subList(0, 2), pages.next());
+        ids.subList(0, 3).forEach(id -> processEngine.getRuntimeService().deleteProcessInstance(id, "test"));
+        assertEquals(Collections.singletonList(ids.subList(3, 5)), readPages(pages));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private List<List<String>> readPages(Iterator<List<String>> pages) {
+        List<List<String>> result = new ArrayList<>();
+        pages.forEachRemaining(result::add);
+        return result;
+    }
+}
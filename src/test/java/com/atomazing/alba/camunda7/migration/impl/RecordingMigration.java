@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import com.atomazing.alba.camunda7.migration.api.MapEqualActivitiesMigration;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Migration mapping equal activities that records every {@link #migrate} call. Synchronous unless {@link #async} is set and the engine
+ * allows batches.
+ */
+@RequiredArgsConstructor
+class RecordingMigration extends MapEqualActivitiesMigration {
+    private final String key;
+    private final String source;
+    private final String target;
+
+    @Setter
+    private boolean async;
+
+    /**
+     * Process ids passed to every call in call order.
+     */
+    @Getter
+    private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Source definition ids of every call in call order.
+     */
+    @Getter
+    private final List<String> sourceDefinitionIds = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public String source() {
+        return source;
+    }
+
+    @Override
+    public String target() {
+        return target;
+    }
+
+    @Override
+    public boolean async() {
+        return async;
+    }
+
+    @Override
+    public void migrate(CamundaMigrationContext context) {
+        calls.add(new ArrayList<>(context.getProcessIds()));
+        sourceDefinitionIds.add(context.getSourceDefinition().getId());
+        super.migrate(context);
+    }
+
+    /**
+     * Returns process ids of all calls in call order.
+     */
+    public List<String> getProcessIds() {
+        List<String> processIds = new ArrayList<>();
+        new ArrayList<>(calls).forEach(processIds::addAll);
+        return processIds;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import com.atomazing.alba.camunda7.migration.api.CamundaMigrationContext;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.impl.jobexecutor.DefaultJobExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncMigrationStrategyTest {
+    private final AtomicInteger submittedProcesses = new AtomicInteger();
+    private final List<String> steps = Collections.synchronizedList(new ArrayList<>());
+    private final MigrationMetrics metrics = new MigrationMetrics() {
+        @Override
+        public void countSubmittedProcesses(String key, String source, String target, int count) {
+            submittedProcesses.addAndGet(count);
+        }
+
+        @Override
+        public void recordStep(String key, String source, String target, long durationNanos) {
+            steps.add(source + " -> " + target);
+        }
+    };
+    private ProcessEngine processEngine;
+
+    @AfterEach
+    void closeEngine() {
+        processEngine.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void migrateCohorts(boolean transactionPerPage) {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1", "1.2", "1.3");
+        List<String> firstIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 3);
+        List<String> middleIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.1"), 2);
+        RecordingMigration first = new RecordingMigration("p", "1.0", "1.1");
+        RecordingMigration second = new RecordingMigration("p", "1.1", "1.2");
+        RecordingMigration third = new RecordingMigration("p", "1.2", "1.3");
+        MigrationAutoStarter migrationAutoStarter = createMigrationAutoStarter(third, first, second);
+        migrationAutoStarter.setTransactionPerPage(transactionPerPage);
+        migrationAutoStarter.setPageSize(2);
+
+        migrate(processEngine, migrationAutoStarter);
+
+        assertEquals(Collections.nCopies(3, "1.3"), getVersionTags(processEngine, firstIds));
+        assertEquals(Collections.nCopies(2, "1.3"), getVersionTags(processEngine, middleIds));
+        assertEquals(Arrays.asList("1.0 -> 1.1", "1.1 -> 1.2", "1.2 -> 1.3"), steps);
+        assertEquals(firstIds, sorted(first.getProcessIds()));
+        List<String> allIds = sorted(firstIds, middleIds);
+        assertEquals(allIds, sorted(second.getProcessIds()));
+        assertEquals(allIds, sorted(third.getProcessIds()));
+        assertEquals(13, migrationAutoStarter.getProgress().getTotalProcesses());
+        assertEquals(13, migrationAutoStarter.getProgress().getMigratedProcesses());
+    }
+
+    @Test
+    void migrateInBatches() throws Exception {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString(), configuration -> {
+            DefaultJobExecutor jobExecutor = new DefaultJobExecutor();
+            jobExecutor.setWaitTimeInMillis(100);
+            jobExecutor.setMaxWait(500);
+            configuration.setJobExecutor(jobExecutor);
+            configuration.setJobExecutorActivate(true);
+            configuration.setBatchPollTime(1);
+        });
+        deployVersions(processEngine, "p", null, "1.0", "1.1", "1.2");
+        List<String> processIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 3);
+        MigrationAutoStarter migrationAutoStarter = createMigrationAutoStarter(
+            createAsyncMigration("1.0", "1.1"), createAsyncMigration("1.1", "1.2"));
+
+        migrationAutoStarter.autoMigrateAsync(processEngine).get(60, TimeUnit.SECONDS);
+
+        assertEquals(Collections.nCopies(3, "1.2"), getVersionTags(processEngine, processIds));
+        assertEquals(6, submittedProcesses.get());
+        assertEquals(0, processEngine.getManagementService().createBatchQuery().count());
+    }
+
+    @Test
+    void migrateInBatches_timeout() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        List<String> processIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 2);
+        MigrationAutoStarter migrationAutoStarter = createMigrationAutoStarter(createAsyncMigration("1.0", "1.1"));
+        migrationAutoStarter.setBatchTimeoutSeconds(1);
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> migrationAutoStarter.autoMigrateAsync(processEngine).get(60, TimeUnit.SECONDS));
+
+        assertInstanceOf(ProcessEngineException.class, failure.getCause());
+        assertTrue(failure.getCause().getMessage().contains("didn't complete in 1 seconds"), failure.getCause().getMessage());
+        assertEquals(Arrays.asList("1.0", "1.0"), getVersionTags(processEngine, processIds));
+        assertTrue(migrationAutoStarter.getProgress().isFailed());
+    }
+
+    @Test
+    void migrateAsyncOnStartUp() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        List<String> processIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 2);
+
+        migrate(processEngine, createMigrationAutoStarter(createAsyncMigration("1.0", "1.1")));
+
+        assertEquals(Arrays.asList("1.1", "1.1"), getVersionTags(processEngine, processIds));
+        assertEquals(0, submittedProcesses.get());
+        assertEquals(0, processEngine.getManagementService().createBatchQuery().count());
+    }
+
+    @Test
+    void migrateAsyncOnStartUp_batchNotAllowed() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        deployVersions(processEngine, "p", null, "1.0", "1.1");
+        List<String> processIds = startProcesses(processEngine, getDefinition(processEngine, "p", null, "1.0"), 1);
+        RecordingMigration migration = new RecordingMigration("p", "1.0", "1.1") {
+            @Override
+            public void migrate(CamundaMigrationContext context) {
+                context.addBatch(context.getProcessEngine().getRuntimeService()
+                    .newMigration(createMigrationPlan(context))
+                    .processInstanceIds(context.getProcessIds())
+                    .executeAsync());
+            }
+        };
+        migration.setAsync(true);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+            () -> migrate(processEngine, createMigrationAutoStarter(migration)));
+
+        assertTrue(failure.getMessage().contains("async migration is not allowed"), failure.getMessage());
+        assertEquals(Collections.singletonList("1.0"), getVersionTags(processEngine, processIds));
+        assertEquals(0, processEngine.getManagementService().createBatchQuery().count());
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    @SafeVarargs
+    private static List<String> sorted(List<String>... processIds) {
+        List<String> result = new ArrayList<>();
+        Arrays.stream(processIds).forEach(result::addAll);
+        Collections.sort(result);
+        return result;
+    }
+
+    private RecordingMigration createAsyncMigration(String source, String target) {
+        RecordingMigration migration = new RecordingMigration("p", source, target);
+        migration.setAsync(true);
+        return migration;
+    }
+
+    private MigrationAutoStarter createMigrationAutoStarter(RecordingMigration... migrations) {
+        MigrationAutoStarter migrationAutoStarter = new MigrationAutoStarter(Arrays.asList(migrations));
+        migrationAutoStarter.setMetrics(metrics);
+        return migrationAutoStarter;
+    }
+}
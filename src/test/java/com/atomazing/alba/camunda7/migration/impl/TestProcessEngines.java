@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.engine.repository.ProcessDefinitionQuery;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Process engines with the library's deployer on in-memory H2 databases shared by engines created with the same database name.
+ */
+final class TestProcessEngines {
+    private TestProcessEngines() {
+    }
+
+    static ProcessEngine create(String database) {
+        return create(database, configuration -> {
+        });
+    }
+
+    /**
+     * Creates an engine with the job executor disabled unless the {@code customizer} enables it.
+     */
+    static ProcessEngine create(String database, Consumer<MigratingSpringProcessEngineConfiguration> customizer) {
+        MigratingSpringProcessEngineConfiguration configuration =
+            new MigratingSpringProcessEngineConfiguration(new MigrationAutoStarter(Collections.emptyList()), true);
+        DataSource dataSource = getDataSource(database);
+        configuration.setDataSource(dataSource);
+        configuration.setTransactionManager(new DataSourceTransactionManager(dataSource));
+        configuration.setDatabaseSchemaUpdate("true");
+        configuration.setJobExecutorActivate(false);
+        configuration.setHistory("none");
+        configuration.setProcessEngineName(database + "-" + UUID.randomUUID());
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        configuration.setApplicationContext(applicationContext);
+        customizer.accept(configuration);
+        return configuration.buildProcessEngine();
+    }
+
+    static DataSource getDataSource(String database) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    static <T> T execute(ProcessEngine processEngine, Command<T> command) {
+        return ((ProcessEngineConfigurationImpl) processEngine.getProcessEngineConfiguration()).getCommandExecutorTxRequired()
+            .execute(command);
+    }
+
+    /**
+     * Returns a resource of the process {@code key} with the version tag and a user task {@code task} named {@code name}, so that
+     * processes with different names have different content while their activities can still be mapped to each other.
+     */
+    static DeploymentResource createResource(String key, String versionTag, String name) {
+        return createResource(key, versionTag, Bpmn.createExecutableProcess(key)
+            .camundaVersionTag(versionTag)
+            .startEvent("start")
+            .userTask("task").name(name)
+            .endEvent("end")
+            .done());
+    }
+
+    static DeploymentResource createResource(String key, String versionTag, BpmnModelInstance model) {
+        byte[] content = Bpmn.convertToString(model).getBytes(StandardCharsets.UTF_8);
+        return new DeploymentResource("process-" + key + "-" + versionTag + ".bpmn", versionTag, content, DeploymentResource.hash(content));
+    }
+
+    static void deploy(ProcessEngine processEngine, String tenantId, DeploymentResource... resources) {
+        execute(processEngine, new VersionTagAwareDeployCmd("test", Arrays.asList(resources), tenantId, true, processEngine));
+    }
+
+    /**
+     * Deploys every version tag of the key in the given order, one deployment per version tag.
+     */
+    static void deployVersions(ProcessEngine processEngine, String key, String tenantId, String... versionTags) {
+        for (String versionTag : versionTags) {
+            deploy(processEngine, tenantId, createResource(key, versionTag, versionTag));
+        }
+    }
+
+    /**
+     * Returns the latest definition of the key with the version tag.
+     */
+    static ProcessDefinition getDefinition(ProcessEngine processEngine, String key, String tenantId, String versionTag) {
+        ProcessDefinitionQuery query = processEngine.getRepositoryService().createProcessDefinitionQuery()
+            .processDefinitionKey(key)
+            .versionTag(versionTag);
+        return (tenantId == null ? query.withoutTenantId() : query.tenantIdIn(tenantId))
+            .orderByProcessDefinitionVersion().desc()
+            .list().get(0);
+    }
+
+    /**
+     * Starts processes on the definition and returns their ids in the order of process instance ids.
+     */
+    static List<String> startProcesses(ProcessEngine processEngine, ProcessDefinition definition, int count) {
+        List<String> processIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            processIds.add(processEngine.getRuntimeService().startProcessInstanceById(definition.getId()).getId());
+        }
+        Collections.sort(processIds);
+        return processIds;
+    }
+
+    /**
+     * Returns version tags of definitions the processes are running on.
+     */
+    static List<String> getVersionTags(ProcessEngine processEngine, List<String> processIds) {
+        return processIds.stream()
+            .map(processId -> processEngine.getRuntimeService().createProcessInstanceQuery().processInstanceId(processId).singleResult())
+            .map(process -> processEngine.getRepositoryService().getProcessDefinition(process.getProcessDefinitionId()).getVersionTag())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs auto-migration the way the engine does on start-up: in a single transaction holding the deployment lock, or page by page.
+     */
+    static void migrate(ProcessEngine processEngine, MigrationAutoStarter migrationAutoStarter) {
+        if (migrationAutoStarter.isTransactionPerPage()) {
+            migrationAutoStarter.autoMigrate(processEngine);
+        } else {
+            execute(processEngine, new AutoMigrateCmd(migrationAutoStarter, processEngine, new ProcessDefinitionCache(processEngine)));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionKeyTest {
+    private static final String[] QUALIFIERS = {"", "-SNAPSHOT", "-rc1", "-alpha", "a", "-1", ".sp", "-final"};
+
+    @ParameterizedTest
+    @CsvSource({
+        "1.2.3, true",
+        "01.01.01, true",
+        "1, true",
+        "1.2.3.4, true",
+        "32767.0, true",
+        "1.2.3.4.5, false",
+        "32768, false",
+        "1.2.3-SNAPSHOT, false",
+        "1..2, false",
+        "1.2., false",
+        ".1, false",
+        "1-2, false",
+    })
+    void isPacked(String tag, boolean packed) {
+        assertEquals(packed, new VersionKey(tag).isPacked());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "1.2.3, 1.2.4",
+        "1.0, 1",
+        "1.0.0.0, 1",
+        "01.01.01, 1.1.1",
+        "1.2.3.4, 1.2.3.4.1",
+        "1.2.3, 1.2.3-SNAPSHOT",
+        "1.10, 1.9",
+        "32767, 32768",
+        "1..2, 1.0.2",
+    })
+    void compareTo(String left, String right) {
+        assertCompatible(left, right);
+        assertCompatible(right, left);
+    }
+
+    @Test
+    void compareTo_random() {
+        Random random = new Random(42);
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tags.add(randomTag(random));
+        }
+        for (int i = 0; i < 20000; i++) {
+            assertCompatible(tags.get(random.nextInt(tags.size())), tags.get(random.nextInt(tags.size())));
+        }
+    }
+
+    // ===================================================================================================================
+    // = Implementation
+    // ===================================================================================================================
+
+    private static void assertCompatible(String left, String right) {
+        int expected = Integer.signum(new ComparableVersion(left).compareTo(new ComparableVersion(right)));
+        assertEquals(expected, Integer.signum(new VersionKey(left).compareTo(new VersionKey(right))), left + " <=> " + right);
+    }
+
+    private static String randomTag(Random random) {
+        StringBuilder tag = new StringBuilder();
+        int segments = 1 + random.nextInt(5);
+        for (int i = 0; i < segments; i++) {
+            if (i > 0) {
+                tag.append('.');
+            }
+            if (random.nextInt(4) == 0) {
+                tag.append('0');
+            }
+            tag.append(random.nextInt(4) == 0 ? random.nextInt(40000) : random.nextInt(3));
+        }
+        if (random.nextInt(5) == 0) {
+            tag.append(QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+        }
+        return tag.toString();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.createResource;
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.deploy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionTagAwareBpmnDeployerTest {
+    private final Logger logger = (Logger) LoggerFactory.getLogger(VersionTagAwareBpmnDeployer.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void addAppender() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void removeAppender() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void checkOverriddenVersionTag() {
+        String database = UUID.randomUUID().toString();
+        ProcessEngine processEngine = TestProcessEngines.create(database);
+        try {
+            deploy(processEngine, null, createResource("p", "1.0", "a"));
+            processEngine.getRuntimeService().startProcessInstanceByKey("p");
+            deploy(processEngine, null, createResource("p", "1.0", "b"));
+        } finally {
+            processEngine.close();
+        }
+        assertEquals(1, countWarnings());
+
+        ProcessEngine restartedEngine = TestProcessEngines.create(database);
+        try {
+            restartedEngine.getRuntimeService().startProcessInstanceByKey("p");
+        } finally {
+            restartedEngine.close();
+        }
+        assertEquals(1, countWarnings());
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private long countWarnings() {
+        return appender.list.stream().filter(event -> event.getLevel() == Level.WARN).count();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomazing.alba.camunda7.migration.impl;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.impl.util.ClockUtil;
+import org.camunda.bpm.engine.repository.Deployment;
+import org.camunda.bpm.engine.repository.DeploymentQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static com.atomazing.alba.camunda7.migration.impl.TestProcessEngines.createResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionTagAwareDeployCmdTest {
+    private ProcessEngine processEngine;
+    private RepositoryService repositoryService;
+    private long time = 1_000_000_000_000L;
+
+    @BeforeEach
+    void createEngine() {
+        processEngine = TestProcessEngines.create(UUID.randomUUID().toString());
+        repositoryService = processEngine.getRepositoryService();
+    }
+
+    @AfterEach
+    void closeEngine() {
+        ClockUtil.reset();
+        processEngine.close();
+    }
+
+    @Test
+    void redeployUnchanged() {
+        DeploymentResource[] resources = {createResource("p", "1.0", "a"), createResource("q", "1.0", "a"), createResource("p", "1.1", "b")};
+        deploy(null, resources);
+        assertEquals(2, countDeployments(null));
+        deploy(null, resources);
+        assertEquals(2, countDeployments(null));
+    }
+
+    @Test
+    void redeployChangedResource() {
+        DeploymentResource p10 = createResource("p", "1.0", "a");
+        DeploymentResource p11 = createResource("p", "1.1", "b");
+        deploy(null, p10, createResource("q", "1.0", "a"), p11);
+        Deployment deployment = deploy(null, p10, createResource("q", "1.0", "b"), p11);
+        assertEquals(3, countDeployments(null));
+        assertEquals(Collections.singletonList("process-q-1.0.bpmn"), repositoryService.getDeploymentResourceNames(deployment.getId()));
+    }
+
+    @Test
+    void redeployChangedResourceInChunks() {
+        DeploymentResource p = createResource("p", "1.0", "a");
+        DeploymentResource q = createResource("q", "1.0", "a");
+        deploy(1, null, p, q, createResource("r", "1.0", "a"));
+        Deployment deployment = deploy(1, null, p, q, createResource("r", "1.0", "b"));
+        assertEquals(2, countDeployments(null));
+        assertEquals(Collections.singletonList("process-r-1.0.bpmn"), repositoryService.getDeploymentResourceNames(deployment.getId()));
+    }
+
+    @Test
+    void redeployRevertedResource() {
+        DeploymentResource a = createResource("p", "1.0", "a");
+        deploy(null, a);
+        deploy(null, createResource("p", "1.0", "b"));
+        deploy(null, a);
+        assertEquals(3, countDeployments(null));
+        deploy(null, a);
+        assertEquals(3, countDeployments(null));
+    }
+
+    @Test
+    void redeployToTenants() {
+        List<String> tenantIds = Arrays.asList("a", "b");
+        DeploymentResource p10 = createResource("p", "1.0", "a");
+        DeploymentResource p11 = createResource("p", "1.1", "c");
+        deploy(tenantIds, p10, createResource("p", "1.1", "b"));
+        deploy(Collections.singletonList("a"), p10, p11);
+        deploy(tenantIds, p10, p11);
+        assertEquals(3, countDeployments("a"));
+        assertEquals(3, countDeployments("b"));
+    }
+
+    // =================================================================================================================
+    // = Implementation
+    // =================================================================================================================
+
+    private Deployment deploy(List<String> tenantIds, DeploymentResource... resources) {
+        return deploy(500, tenantIds, resources);
+    }
+
+    /**
+     * Deploys the resources one second after the previous deployment and returns the latest deployment.
+     */
+    private Deployment deploy(int maxNamesPerQuery, List<String> tenantIds, DeploymentResource... resources) {
+        time += 1000;
+        ClockUtil.setCurrentTime(new Date(time));
+        VersionTagAwareDeployCmd command = new VersionTagAwareDeployCmd("test", Arrays.asList(resources),
+            tenantIds != null ? tenantIds : Collections.singletonList(null), true, processEngine, MigrationMetrics.NONE);
+        command.setMaxNamesPerQuery(maxNamesPerQuery);
+        TestProcessEngines.execute(processEngine, command);
+        return repositoryService.createDeploymentQuery().orderByDeploymentTime().desc().list().get(0);
+    }
+
+    private long countDeployments(String tenantId) {
+        DeploymentQuery query = repositoryService.createDeploymentQuery().deploymentName("test");
+        return tenantId != null ? query.tenantIdIn(tenantId).count() : query.count();
+    }
+}